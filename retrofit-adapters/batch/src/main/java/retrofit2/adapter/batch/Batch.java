@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.batch;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Send calls to a method in batches to a {@code multipart/mixed} batch endpoint, with
+ * {@link BatchingCallAdapterFactory}.
+ * <pre><code>
+ * &#64;Batch("batch")
+ * &#64;GET("users/{id}")
+ * Call&lt;User&gt; user(@Path("id") long id);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Batch {
+  /** The batch endpoint, resolved against the base URL like a method's relative URL. */
+  String value();
+
+  /** The most calls sent in one batch. A full batch is sent immediately. */
+  int maxSize() default 50;
+
+  /** How long the first call of a batch waits for others to join it. */
+  long maxDelay() default 10;
+
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.batch;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * Encodes requests into a {@code multipart/mixed} batch and decodes the batch response, as used by
+ * Google's and OData's batch endpoints. Each part is an {@code application/http} message whose
+ * {@code Content-ID} pairs a response with its request.
+ */
+final class BatchCodec {
+  private static final MediaType HTTP = MediaType.get("application/http");
+  private static final Pattern BOUNDARY = Pattern.compile(";\\s*boundary=\"?([^\";]+)\"?");
+  private static final ByteString DASH_DASH = ByteString.encodeUtf8("--");
+
+  static RequestBody encode(List<Request> requests) throws IOException {
+    MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.MIXED);
+    for (int i = 0, size = requests.size(); i < size; i++) {
+      Request request = requests.get(i);
+      Buffer message = new Buffer();
+
+      String query = request.url().encodedQuery();
+      message.writeUtf8(request.method())
+          .writeByte(' ')
+          .writeUtf8(request.url().encodedPath());
+      if (query != null) message.writeByte('?').writeUtf8(query);
+      message.writeUtf8(" HTTP/1.1\r\n")
+          .writeUtf8("Host: ").writeUtf8(request.url().host()).writeUtf8("\r\n");
+
+      RequestBody body = request.body();
+      if (body != null) {
+        MediaType contentType = body.contentType();
+        if (contentType != null) {
+          message.writeUtf8("Content-Type: ").writeUtf8(contentType.toString()).writeUtf8("\r\n");
+        }
+        long contentLength = body.contentLength();
+        if (contentLength != -1L) {
+          message.writeUtf8("Content-Length: ").writeDecimalLong(contentLength).writeUtf8("\r\n");
+        }
+      }
+      Headers headers = request.headers();
+      for (int h = 0, count = headers.size(); h < count; h++) {
+        message.writeUtf8(headers.name(h))
+            .writeUtf8(": ")
+            .writeUtf8(headers.value(h))
+            .writeUtf8("\r\n");
+      }
+      message.writeUtf8("\r\n");
+      if (body != null) body.writeTo(message);
+
+      builder.addPart(Headers.of("Content-ID", "<" + i + ">"),
+          RequestBody.create(HTTP, message.readByteString()));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Decodes a batch response into one response per request, in the same order. Parts are matched
+   * to requests by {@code Content-ID}, falling back to their position. A request without a part
+   * gets a null response.
+   */
+  static List<Response> decode(Response batch, List<Request> requests) throws IOException {
+    ResponseBody body = batch.body();
+    String contentType = batch.header("Content-Type");
+    Matcher matcher = BOUNDARY.matcher(contentType != null ? contentType : "");
+    if (body == null || !matcher.find()) {
+      throw new ProtocolException("Expected a multipart response but was " + contentType);
+    }
+    ByteString delimiter = ByteString.encodeUtf8("\r\n--" + matcher.group(1));
+
+    Buffer data = new Buffer().writeUtf8("\r\n");
+    data.writeAll(body.source());
+
+    List<Response> responses = new ArrayList<>(requests.size());
+    for (int i = 0, size = requests.size(); i < size; i++) {
+      responses.add(null);
+    }
+
+    long index = data.indexOf(delimiter);
+    if (index == -1L) throw new ProtocolException("Missing multipart boundary");
+    data.skip(index + delimiter.size());
+    for (int position = 0; !data.rangeEquals(0, DASH_DASH); position++) {
+      data.readUtf8LineStrict(); // Transport padding after the delimiter.
+      long next = data.indexOf(delimiter);
+      if (next == -1L) throw new ProtocolException("Unterminated multipart part");
+      Buffer part = new Buffer();
+      part.write(data, next);
+      data.skip(delimiter.size());
+
+      int id = position;
+      Headers partHeaders = readHeaders(part);
+      String contentId = partHeaders.get("Content-ID");
+      if (contentId != null) {
+        Integer parsed = parseContentId(contentId);
+        if (parsed != null) id = parsed;
+      }
+      if (id < 0 || id >= responses.size()) {
+        throw new ProtocolException("Unexpected part " + contentId);
+      }
+      responses.set(id, readResponse(part, requests.get(id)));
+    }
+    return responses;
+  }
+
+  /** Parses IDs like {@code <3>}, {@code <response-3>} and {@code <response-abc+3>}. */
+  private static @Nullable Integer parseContentId(String contentId) {
+    String value = contentId.trim();
+    if (value.startsWith("<") && value.endsWith(">")) {
+      value = value.substring(1, value.length() - 1);
+    }
+    int start = value.length();
+    while (start > 0 && Character.isDigit(value.charAt(start - 1))) {
+      start--;
+    }
+    if (start == value.length()) return null;
+    try {
+      return Integer.parseInt(value.substring(start));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static Response readResponse(Buffer part, Request request) throws IOException {
+    String statusLine = part.readUtf8LineStrict();
+    String[] status = statusLine.split(" ", 3);
+    if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+      throw new ProtocolException("Unexpected status line: " + statusLine);
+    }
+    int code;
+    try {
+      code = Integer.parseInt(status[1]);
+    } catch (NumberFormatException e) {
+      throw new ProtocolException("Unexpected status line: " + statusLine);
+    }
+    Headers headers = readHeaders(part);
+
+    String contentType = headers.get("Content-Type");
+    ResponseBody body = ResponseBody.create(
+        contentType != null ? MediaType.parse(contentType) : null, part.readByteString());
+    return new Response.Builder()
+        .request(request)
+        .protocol(Protocol.HTTP_1_1)
+        .code(code)
+        .message(status.length > 2 ? status[2] : "")
+        .headers(headers)
+        .body(body)
+        .build();
+  }
+
+  private static Headers readHeaders(Buffer source) throws IOException {
+    Headers.Builder headers = new Headers.Builder();
+    while (true) {
+      String line = source.readUtf8LineStrict();
+      if (line.isEmpty()) break;
+      headers.add(line);
+    }
+    return headers.build();
+  }
+
+  private BatchCodec() {
+    throw new AssertionError("No instances.");
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.batch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Converter;
+import retrofit2.Response;
+
+/**
+ * Sends its delegate's request as part of a batch rather than on its own, and converts its part of
+ * the batch response with the method's converter.
+ */
+final class BatchedCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final Batcher batcher;
+  private final Converter<ResponseBody, T> converter;
+
+  // Guarded by this.
+  private boolean executed;
+  private boolean canceled;
+  private @Nullable Entry<T> entry;
+
+  BatchedCall(Call<T> delegate, Batcher batcher, Converter<ResponseBody, T> converter) {
+    this.delegate = delegate;
+    this.batcher = batcher;
+    this.converter = converter;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    BlockingCallback<T> callback = new BlockingCallback<>();
+    enqueue(callback);
+    return callback.await(this);
+  }
+
+  @Override public void enqueue(Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+    }
+
+    Request request;
+    try {
+      request = delegate.request();
+    } catch (RuntimeException | Error e) {
+      callback.onFailure(this, e);
+      return;
+    }
+
+    Entry<T> entry = new Entry<>(request, this, callback);
+    synchronized (this) {
+      if (canceled) {
+        callback.onFailure(this, new IOException("Canceled"));
+        return;
+      }
+      this.entry = entry;
+    }
+    batcher.add(entry);
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    Entry<T> entry;
+    synchronized (this) {
+      canceled = true;
+      entry = this.entry;
+    }
+    // A call which was already sent completes with a failure when the batch does.
+    if (entry != null && batcher.remove(entry)) {
+      entry.fail(new IOException("Canceled"));
+    }
+  }
+
+  @Override public synchronized boolean isCanceled() {
+    return canceled;
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new BatchedCall<>(delegate.clone(), batcher, converter);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+
+  /** One call's place in a batch. */
+  static final class Entry<T> {
+    final Request request;
+    private final BatchedCall<T> call;
+    private final Callback<T> callback;
+
+    Entry(Request request, BatchedCall<T> call, Callback<T> callback) {
+      this.request = request;
+      this.call = call;
+      this.callback = callback;
+    }
+
+    /**
+     * Delivers this entry's part of the batch response. Like {@link #fail}, this never throws, so
+     * one callback which throws cannot keep the rest of the batch from completing.
+     */
+    void complete(okhttp3.Response rawResponse) {
+      if (call.isCanceled()) {
+        fail(new IOException("Canceled"));
+        return;
+      }
+
+      Response<T> response;
+      try {
+        response = call.parseResponse(rawResponse);
+      } catch (Throwable t) {
+        fail(t);
+        return;
+      }
+      try {
+        callback.onResponse(call, response);
+      } catch (Throwable t) {
+        t.printStackTrace();
+      }
+    }
+
+    void fail(Throwable failure) {
+      try {
+        callback.onFailure(call, failure);
+      } catch (Throwable t) {
+        t.printStackTrace();
+      }
+    }
+  }
+
+  /** Converts a part of the batch response the same way a call's own response is converted. */
+  Response<T> parseResponse(okhttp3.Response rawResponse) throws IOException {
+    ResponseBody rawBody = rawResponse.body();
+    // Remove the body's source (the only stateful object) so we can pass the response along.
+    rawResponse = rawResponse.newBuilder().body(null).build();
+
+    int code = rawResponse.code();
+    if (code < 200 || code >= 300) {
+      return Response.error(rawBody, rawResponse);
+    }
+    if (code == 204 || code == 205) {
+      rawBody.close();
+      return Response.success(null, rawResponse);
+    }
+    try {
+      return Response.success(converter.convert(rawBody), rawResponse);
+    } finally {
+      rawBody.close();
+    }
+  }
+
+  private static final class BlockingCallback<T> implements Callback<T> {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile @Nullable Response<T> response;
+    private volatile @Nullable Throwable failure;
+
+    @Override public void onResponse(Call<T> call, Response<T> response) {
+      this.response = response;
+      latch.countDown();
+    }
+
+    @Override public void onFailure(Call<T> call, Throwable t) {
+      this.failure = t;
+      latch.countDown();
+    }
+
+    Response<T> await(Call<T> call) throws IOException {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        call.cancel();
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      Throwable failure = this.failure;
+      if (failure == null) return response;
+      if (failure instanceof IOException) throw (IOException) failure;
+      if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+      if (failure instanceof Error) throw (Error) failure;
+      throw new RuntimeException(failure);
+    }
+  }
+}
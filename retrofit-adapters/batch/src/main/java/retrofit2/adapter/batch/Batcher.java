@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Collects calls for one batch endpoint and sends them together once enough have arrived or the
+ * first has waited long enough.
+ */
+final class Batcher {
+  private final HttpUrl url;
+  final int maxSize;
+  final long maxDelayNanos;
+  private final okhttp3.Call.Factory callFactory;
+  private final ScheduledExecutorService scheduler;
+  private final Runnable flushTask = new Runnable() {
+    @Override public void run() {
+      flush();
+    }
+  };
+
+  // Guarded by this.
+  private List<BatchedCall.Entry<?>> pending = new ArrayList<>();
+  private @Nullable ScheduledFuture<?> timer;
+
+  Batcher(HttpUrl url, int maxSize, long maxDelayNanos, okhttp3.Call.Factory callFactory,
+      ScheduledExecutorService scheduler) {
+    this.url = url;
+    this.maxSize = maxSize;
+    this.maxDelayNanos = maxDelayNanos;
+    this.callFactory = callFactory;
+    this.scheduler = scheduler;
+  }
+
+  void add(BatchedCall.Entry<?> entry) {
+    List<BatchedCall.Entry<?>> batch = null;
+    synchronized (this) {
+      pending.add(entry);
+      if (pending.size() >= maxSize) {
+        batch = take();
+      } else if (pending.size() == 1) {
+        timer = scheduler.schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+    if (batch != null) send(batch);
+  }
+
+  /** Removes an entry which has not been sent yet. Returns false if it was already sent. */
+  synchronized boolean remove(BatchedCall.Entry<?> entry) {
+    if (!pending.remove(entry)) return false;
+    if (pending.isEmpty() && timer != null) {
+      // The next call starts a new batch with its own delay.
+      timer.cancel(false);
+      timer = null;
+    }
+    return true;
+  }
+
+  void flush() {
+    List<BatchedCall.Entry<?>> batch;
+    synchronized (this) {
+      batch = take();
+    }
+    if (!batch.isEmpty()) send(batch);
+  }
+
+  /** Takes the pending entries. Callers must hold this. */
+  private List<BatchedCall.Entry<?>> take() {
+    if (timer != null) {
+      timer.cancel(false);
+      timer = null;
+    }
+    List<BatchedCall.Entry<?>> batch = pending;
+    pending = new ArrayList<>();
+    return batch;
+  }
+
+  private void send(final List<BatchedCall.Entry<?>> batch) {
+    final List<Request> requests = new ArrayList<>(batch.size());
+    for (BatchedCall.Entry<?> entry : batch) {
+      requests.add(entry.request);
+    }
+
+    Request request;
+    try {
+      request = new Request.Builder()
+          .url(url)
+          .post(BatchCodec.encode(requests))
+          .build();
+    } catch (IOException e) {
+      failAll(batch, e);
+      return;
+    }
+
+    callFactory.newCall(request).enqueue(new okhttp3.Callback() {
+      @Override public void onResponse(okhttp3.Call call, Response response) {
+        List<Response> responses;
+        try {
+          if (!response.isSuccessful()) {
+            throw new IOException("Batch request failed: " + response.code() + " "
+                + response.message());
+          }
+          responses = BatchCodec.decode(response, requests);
+        } catch (IOException e) {
+          failAll(batch, e);
+          return;
+        } finally {
+          response.close();
+        }
+
+        for (int i = 0, size = batch.size(); i < size; i++) {
+          Response part = responses.get(i);
+          if (part != null) {
+            batch.get(i).complete(part);
+          } else {
+            batch.get(i).fail(new IOException("Batch response has no part for this call"));
+          }
+        }
+      }
+
+      @Override public void onFailure(okhttp3.Call call, IOException e) {
+        failAll(batch, e);
+      }
+    });
+  }
+
+  private static void failAll(List<BatchedCall.Entry<?>> batch, Throwable t) {
+    for (BatchedCall.Entry<?> entry : batch) {
+      entry.fail(t);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.batch;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which sends calls to {@link Batch @Batch}
+ * methods together as one {@code multipart/mixed} request to a batch endpoint.
+ * <p>
+ * Calls are collected until a batch is full or its first call has waited for the batch's delay.
+ * Each call's request becomes an {@code application/http} part of the batch, and each part of the
+ * batch response is converted with the method's own {@link Converter} and delivered to its call.
+ * Methods which name the same batch endpoint share batches, and so must declare the same size and
+ * delay.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps.
+ */
+public final class BatchingCallAdapterFactory extends CallAdapter.Factory {
+  /** Create an instance which waits for batches to fill on a shared daemon thread. */
+  public static BatchingCallAdapterFactory create() {
+    return new BatchingCallAdapterFactory(DefaultScheduler.INSTANCE);
+  }
+
+  /** Create an instance which waits for batches to fill on {@code scheduler}. */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static BatchingCallAdapterFactory create(ScheduledExecutorService scheduler) {
+    if (scheduler == null) throw new NullPointerException("scheduler == null");
+    return new BatchingCallAdapterFactory(scheduler);
+  }
+
+  private final ScheduledExecutorService scheduler;
+  private final ConcurrentMap<BatcherKey, Batcher> batchers = new ConcurrentHashMap<>();
+
+  private BatchingCallAdapterFactory(ScheduledExecutorService scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Batch batch = null;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Batch) {
+        batch = (Batch) annotation;
+        break;
+      }
+    }
+    if (batch == null) {
+      return null;
+    }
+    if (batch.maxSize() < 1) {
+      throw new IllegalArgumentException("@Batch maxSize must be at least 1.");
+    }
+    HttpUrl url = retrofit.baseUrl().resolve(batch.value());
+    if (url == null) {
+      throw new IllegalArgumentException("Malformed @Batch URL: " + batch.value());
+    }
+
+    // Batches go through the client of the Retrofit which created the method, so instances
+    // sharing this factory but not a client never share a batch.
+    BatcherKey key = new BatcherKey(retrofit.callFactory(), url);
+    long maxDelayNanos = batch.unit().toNanos(batch.maxDelay());
+    Batcher batcher = batchers.get(key);
+    if (batcher == null) {
+      batcher = new Batcher(url, batch.maxSize(), maxDelayNanos, retrofit.callFactory(), scheduler);
+      Batcher existing = batchers.putIfAbsent(key, batcher);
+      if (existing != null) batcher = existing;
+    }
+    if (batcher.maxSize != batch.maxSize() || batcher.maxDelayNanos != maxDelayNanos) {
+      throw new IllegalArgumentException(
+          "@Batch endpoint " + url + " is declared with different limits on different methods.");
+    }
+
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    Converter<ResponseBody, ?> converter =
+        retrofit.responseBodyConverter(delegate.responseType(), annotations);
+    return create(delegate, converter, batcher);
+  }
+
+  @SuppressWarnings("unchecked") // The converter was looked up for the delegate's response type.
+  private static <R, T> CallAdapter<R, T> create(CallAdapter<R, T> delegate,
+      Converter<ResponseBody, ?> converter, Batcher batcher) {
+    return new BatchingCallAdapter<>(delegate, (Converter<ResponseBody, R>) converter, batcher);
+  }
+
+  /** Identifies a batch endpoint by the client which sends to it and its URL. */
+  private static final class BatcherKey {
+    private final okhttp3.Call.Factory callFactory;
+    private final HttpUrl url;
+
+    BatcherKey(okhttp3.Call.Factory callFactory, HttpUrl url) {
+      this.callFactory = callFactory;
+      this.url = url;
+    }
+
+    @Override public boolean equals(@Nullable Object other) {
+      return other instanceof BatcherKey
+          && ((BatcherKey) other).callFactory == callFactory
+          && ((BatcherKey) other).url.equals(url);
+    }
+
+    @Override public int hashCode() {
+      return 31 * System.identityHashCode(callFactory) + url.hashCode();
+    }
+  }
+
+  private static final class BatchingCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final Converter<ResponseBody, R> converter;
+    private final Batcher batcher;
+
+    BatchingCallAdapter(CallAdapter<R, T> delegate, Converter<ResponseBody, R> converter,
+        Batcher batcher) {
+      this.delegate = delegate;
+      this.converter = converter;
+      this.batcher = batcher;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(new BatchedCall<>(call, batcher, converter));
+    }
+  }
+}
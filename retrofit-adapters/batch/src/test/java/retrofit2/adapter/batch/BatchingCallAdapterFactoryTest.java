@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.batch;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Path;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static retrofit2.adapter.batch.RecordingCallback.enqueue;
+
+public final class BatchingCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Batch(value = "batch", maxSize = 3, maxDelay = 10, unit = SECONDS)
+    @GET("users/{id}")
+    Call<String> user(@Path("id") String id);
+
+    @Batch(value = "batch", maxSize = 3, maxDelay = 10, unit = SECONDS)
+    @POST("users")
+    Call<String> create(@Body String name);
+
+    @Batch(value = "quick", maxDelay = 50)
+    @GET("users/{id}")
+    Call<String> quickUser(@Path("id") String id);
+
+    @Batch(value = "batch", maxSize = 0)
+    @GET("/")
+    Call<String> invalid();
+
+    @Batch(value = "batch", maxSize = 2, maxDelay = 10, unit = SECONDS)
+    @GET("/")
+    Call<String> conflicting();
+  }
+
+  private final BatchingCallAdapterFactory factory = BatchingCallAdapterFactory.create();
+  private Retrofit retrofit;
+  private Service service;
+
+  @Before public void setUp() {
+    retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  private static MockResponse batchResponse(String... parts) {
+    StringBuilder body = new StringBuilder();
+    for (String part : parts) {
+      body.append("--b\r\n").append(part).append("\r\n");
+    }
+    body.append("--b--\r\n");
+    return new MockResponse()
+        .setHeader("Content-Type", "multipart/mixed; boundary=b")
+        .setBody(body.toString());
+  }
+
+  private static String part(String contentId, int code, String body) {
+    return "Content-Type: application/http\r\n"
+        + "Content-ID: " + contentId + "\r\n"
+        + "\r\n"
+        + "HTTP/1.1 " + code + " Status\r\n"
+        + "Content-Type: text/plain\r\n"
+        + "\r\n"
+        + body;
+  }
+
+  @Test public void fullBatchSentImmediately() throws InterruptedException {
+    server.enqueue(batchResponse(
+        part("<response-2>", 200, "Created"),
+        part("<response-1>", 200, "Bob"),
+        part("<response-0>", 200, "Alice")));
+
+    RecordingCallback<String> alice = enqueue(service.user("alice"));
+    RecordingCallback<String> bob = enqueue(service.user("bob"));
+    RecordingCallback<String> created = enqueue(service.create("Carol"));
+
+    assertThat(alice.awaitResponse().body()).isEqualTo("Alice");
+    assertThat(bob.awaitResponse().body()).isEqualTo("Bob");
+    assertThat(created.awaitResponse().body()).isEqualTo("Created");
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getPath()).isEqualTo("/batch");
+    assertThat(request.getHeader("Content-Type")).startsWith("multipart/mixed; boundary=");
+    String body = request.getBody().readUtf8();
+    assertThat(body)
+        .contains("Content-ID: <0>")
+        .contains("Content-Type: application/http")
+        .contains("GET /users/alice HTTP/1.1\r\n")
+        .contains("GET /users/bob HTTP/1.1\r\n")
+        .contains("POST /users HTTP/1.1\r\n")
+        .contains("\r\n\r\nCarol");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void partialBatchSentAfterDelay() throws IOException {
+    server.enqueue(batchResponse(part("<response-0>", 200, "Alice")));
+
+    Response<String> response = service.quickUser("alice").execute();
+    assertThat(response.body()).isEqualTo("Alice");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void batchesUseEachRetrofitsClient() throws Exception {
+    OkHttpClient client = new OkHttpClient.Builder()
+        .addInterceptor(new Interceptor() {
+          @Override public okhttp3.Response intercept(Chain chain) throws IOException {
+            return chain.proceed(chain.request().newBuilder()
+                .header("Authorization", "other")
+                .build());
+          }
+        })
+        .build();
+    Service otherService = retrofit.newBuilder().client(client).build().create(Service.class);
+    server.enqueue(batchResponse(part("<response-0>", 200, "Alice")));
+    server.enqueue(batchResponse(part("<response-0>", 200, "Bob")));
+
+    assertThat(service.quickUser("alice").execute().body()).isEqualTo("Alice");
+    assertThat(otherService.quickUser("bob").execute().body()).isEqualTo("Bob");
+
+    assertThat(server.takeRequest().getHeader("Authorization")).isNull();
+    assertThat(server.takeRequest().getHeader("Authorization")).isEqualTo("other");
+  }
+
+  @Test public void partsWithoutContentIdMatchedByPosition() throws IOException {
+    server.enqueue(batchResponse("Content-Type: application/http\r\n"
+        + "\r\n"
+        + "HTTP/1.1 200 OK\r\n"
+        + "\r\n"
+        + "Alice"));
+
+    assertThat(service.quickUser("alice").execute().body()).isEqualTo("Alice");
+  }
+
+  @Test public void errorPartDeliveredAsErrorResponse() throws IOException {
+    server.enqueue(batchResponse(part("<response-0>", 404, "Not here")));
+
+    Response<String> response = service.quickUser("alice").execute();
+    assertThat(response.code()).isEqualTo(404);
+    assertThat(response.errorBody().string()).isEqualTo("Not here");
+  }
+
+  @Test public void failedBatchFailsEveryCall() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    RecordingCallback<String> a = enqueue(service.user("a"));
+    RecordingCallback<String> b = enqueue(service.user("b"));
+    RecordingCallback<String> c = enqueue(service.user("c"));
+
+    assertThat(a.awaitFailure()).hasMessage("Batch request failed: 500 Server Error");
+    assertThat(b.awaitFailure()).isInstanceOf(IOException.class);
+    assertThat(c.awaitFailure()).isInstanceOf(IOException.class);
+  }
+
+  @Test public void throwingCallbackDoesNotStopOthers() throws InterruptedException {
+    server.enqueue(batchResponse(
+        part("<response-0>", 200, "Alice"),
+        part("<response-1>", 200, "Bob"),
+        part("<response-2>", 200, "Carol")));
+
+    service.user("a").enqueue(new Callback<String>() {
+      @Override public void onResponse(Call<String> call, Response<String> response) {
+        throw new RuntimeException("Broken!");
+      }
+
+      @Override public void onFailure(Call<String> call, Throwable t) {
+        throw new AssertionError();
+      }
+    });
+    RecordingCallback<String> b = enqueue(service.user("b"));
+    RecordingCallback<String> c = enqueue(service.user("c"));
+
+    assertThat(b.awaitResponse().body()).isEqualTo("Bob");
+    assertThat(c.awaitResponse().body()).isEqualTo("Carol");
+  }
+
+  @Test public void cancelBeforeSendRemovesFromBatch() throws InterruptedException {
+    Call<String> call = service.user("a");
+    RecordingCallback<String> callback = enqueue(call);
+    call.cancel();
+
+    assertThat(callback.awaitFailure()).hasMessage("Canceled");
+    assertThat(call.isCanceled()).isTrue();
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
+  @Test public void cancelingEveryPendingCallCancelsTimer() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.setRemoveOnCancelPolicy(true);
+    try {
+      Service service = new Retrofit.Builder()
+          .baseUrl(server.url("/"))
+          .addConverterFactory(new StringConverterFactory())
+          .addCallAdapterFactory(BatchingCallAdapterFactory.create(scheduler))
+          .build()
+          .create(Service.class);
+
+      Call<String> call = service.user("a");
+      enqueue(call);
+      assertThat(scheduler.getQueue()).hasSize(1);
+      call.cancel();
+      assertThat(scheduler.getQueue()).isEmpty();
+
+      // The next batch gets a single timer of its own.
+      enqueue(service.user("b"));
+      assertThat(scheduler.getQueue()).hasSize(1);
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test public void invalidBatchRejected() {
+    try {
+      service.invalid();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("@Batch maxSize must be at least 1.");
+    }
+  }
+
+  @Test public void endpointWithDifferentLimitsThrows() {
+    service.user("a");
+    try {
+      service.conflicting();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("@Batch endpoint " + server.url("/batch")
+          + " is declared with different limits on different methods.");
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.batch;
+
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Nullable;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertTrue;
+
+/** Records the outcome of one call for tests to await. */
+final class RecordingCallback<T> implements Callback<T> {
+  private final CountDownLatch latch = new CountDownLatch(1);
+  private volatile @Nullable Response<T> response;
+  private volatile @Nullable Throwable failure;
+
+  @Override public void onResponse(Call<T> call, Response<T> response) {
+    this.response = response;
+    latch.countDown();
+  }
+
+  @Override public void onFailure(Call<T> call, Throwable t) {
+    this.failure = t;
+    latch.countDown();
+  }
+
+  Response<T> awaitResponse() throws InterruptedException {
+    assertTrue(latch.await(10, SECONDS));
+    if (failure != null) throw new AssertionError(failure);
+    return response;
+  }
+
+  Throwable awaitFailure() throws InterruptedException {
+    assertTrue(latch.await(10, SECONDS));
+    if (failure == null) throw new AssertionError("Expected failure but was " + response);
+    return failure;
+  }
+
+  static <T> RecordingCallback<T> enqueue(Call<T> call) {
+    RecordingCallback<T> callback = new RecordingCallback<>();
+    call.enqueue(callback);
+    return callback;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Memoize the converted response of a {@link retrofit2.http.GET GET} method with
+ * {@link CachingCallAdapterFactory}.
+ * <pre><code>
+ * &#64;Cacheable(ttl = 10, unit = TimeUnit.MINUTES)
+ * &#64;GET("countries")
+ * Call&lt;List&lt;Country&gt;&gt; countries();
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Cacheable {
+  /**
+   * How long a cached response may be reused. Zero or less uses the factory's
+   * {@linkplain CachingCallAdapterFactory.Builder#defaultTtl(long, TimeUnit) default}.
+   */
+  long ttl() default 0;
+
+  TimeUnit unit() default TimeUnit.SECONDS;
+}
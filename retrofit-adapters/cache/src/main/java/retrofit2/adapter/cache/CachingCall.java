@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/** Serves successful responses from a {@link ResponseCache}, populating it on a miss. */
+final class CachingCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final Type responseType;
+  private final ResponseCache cache;
+  private final List<String> keyHeaders;
+  private final long ttlNanos;
+
+  private boolean executed; // Guarded by this.
+
+  CachingCall(Call<T> delegate, Type responseType, ResponseCache cache, List<String> keyHeaders,
+      long ttlNanos) {
+    this.delegate = delegate;
+    this.responseType = responseType;
+    this.cache = cache;
+    this.keyHeaders = keyHeaders;
+    this.ttlNanos = ttlNanos;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    markExecuted();
+
+    String key = key();
+    if (key != null) {
+      Response<T> cached = cached(key);
+      if (cached != null) {
+        if (delegate.isCanceled()) throw new IOException("Canceled");
+        return cached;
+      }
+    }
+
+    Response<T> response = delegate.execute();
+    if (key != null) store(key, response);
+    return response;
+  }
+
+  @Override public void enqueue(final Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    markExecuted();
+
+    final String key = key();
+    if (key != null) {
+      Response<T> cached = cached(key);
+      if (cached != null) {
+        if (delegate.isCanceled()) {
+          callback.onFailure(this, new IOException("Canceled"));
+        } else {
+          callback.onResponse(this, cached);
+        }
+        return;
+      }
+    }
+
+    delegate.enqueue(new Callback<T>() {
+      @Override public void onResponse(Call<T> call, Response<T> response) {
+        if (key != null) store(key, response);
+        callback.onResponse(CachingCall.this, response);
+      }
+
+      @Override public void onFailure(Call<T> call, Throwable t) {
+        callback.onFailure(CachingCall.this, t);
+      }
+    });
+  }
+
+  private synchronized void markExecuted() {
+    if (executed) throw new IllegalStateException("Already executed.");
+    executed = true;
+  }
+
+  /**
+   * Returns the cache key of this call's request, or null if the request cannot be created. In
+   * that case the delegate is left to report the failure.
+   */
+  private @Nullable String key() {
+    Request request;
+    try {
+      request = delegate.request();
+    } catch (RuntimeException e) {
+      return null;
+    }
+
+    // The response type is part of the key so that methods which share a URL but convert it
+    // differently never see each other's bodies.
+    StringBuilder key = new StringBuilder()
+        .append(responseType)
+        .append(' ')
+        .append(request.url());
+    for (int i = 0, size = keyHeaders.size(); i < size; i++) {
+      String name = keyHeaders.get(i);
+      for (String value : request.headers(name)) {
+        key.append('\n').append(name).append(": ").append(value);
+      }
+    }
+    return key.toString();
+  }
+
+  @SuppressWarnings("unchecked") // Keys include the response type.
+  private @Nullable Response<T> cached(String key) {
+    return (Response<T>) cache.get(key, System.nanoTime());
+  }
+
+  private void store(String key, Response<T> response) {
+    if (response.isSuccessful()) {
+      cache.put(key, response, System.nanoTime(), ttlNanos);
+    }
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    delegate.cancel();
+  }
+
+  @Override public boolean isCanceled() {
+    return delegate.isCanceled();
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new CachingCall<>(delegate.clone(), responseType, cache, keyHeaders, ttlNanos);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+}
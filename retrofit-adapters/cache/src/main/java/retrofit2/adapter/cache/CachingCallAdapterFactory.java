@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.HTTP;
+import retrofit2.http.Streaming;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which memoizes the converted responses of
+ * {@link Cacheable @Cacheable} GET methods.
+ * <p>
+ * OkHttp's cache avoids the network but still hands the body to the converter on every hit. This
+ * factory instead keeps the converted {@link retrofit2.Response Response} in a bounded
+ * least-recently-used cache, keyed on the request URL and any
+ * {@linkplain Builder#addKeyHeader(String) selected headers}, so a hit costs neither I/O nor
+ * deserialization. Only successful responses are cached.
+ * <p>
+ * Cached bodies are shared by every caller which hits them and must be treated as immutable. For
+ * that reason methods may not return a raw {@link ResponseBody} or be
+ * {@link Streaming @Streaming}, as those bodies can only be read once. A hit
+ * on {@link Call#enqueue} is delivered before {@code enqueue} returns; callback executors applied
+ * by later call adapters still apply.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps.
+ * <pre><code>
+ * Retrofit retrofit = new Retrofit.Builder()
+ *     .baseUrl("https://example.com/")
+ *     .addCallAdapterFactory(CachingCallAdapterFactory.create())
+ *     .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+ *     .build();
+ * </code></pre>
+ */
+public final class CachingCallAdapterFactory extends CallAdapter.Factory {
+  public static CachingCallAdapterFactory create() {
+    return new Builder().build();
+  }
+
+  private final ResponseCache cache;
+  private final List<String> keyHeaders;
+  private final long defaultTtlNanos;
+
+  CachingCallAdapterFactory(ResponseCache cache, List<String> keyHeaders, long defaultTtlNanos) {
+    this.cache = cache;
+    this.keyHeaders = keyHeaders;
+    this.defaultTtlNanos = defaultTtlNanos;
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Cacheable cacheable = null;
+    boolean isGet = false;
+    boolean isStreaming = false;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Cacheable) {
+        cacheable = (Cacheable) annotation;
+      } else if (annotation instanceof Streaming) {
+        isStreaming = true;
+      } else if (annotation instanceof GET) {
+        isGet = true;
+      } else if (annotation instanceof HTTP) {
+        isGet = "GET".equals(((HTTP) annotation).method());
+      }
+    }
+    if (cacheable == null) {
+      return null;
+    }
+    if (!isGet) {
+      throw new IllegalArgumentException("@Cacheable can only be used on GET methods.");
+    }
+    // A streamed or raw body can only be read once, so it can't be handed to every hit.
+    if (isStreaming) {
+      throw new IllegalArgumentException("@Cacheable cannot be used on @Streaming methods.");
+    }
+
+    long ttlNanos = cacheable.ttl() > 0
+        ? cacheable.unit().toNanos(cacheable.ttl())
+        : defaultTtlNanos;
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    if (delegate.responseType() == ResponseBody.class) {
+      throw new IllegalArgumentException(
+          "@Cacheable cannot share a ResponseBody. Use a converted type instead.");
+    }
+    return new CachingCallAdapter<>(delegate, cache, keyHeaders, ttlNanos);
+  }
+
+  /** Returns the number of responses currently held. Expired responses may be included. */
+  public int size() {
+    return cache.size();
+  }
+
+  /** Discards every cached response. */
+  public void evictAll() {
+    cache.evictAll();
+  }
+
+  private static final class CachingCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final ResponseCache cache;
+    private final List<String> keyHeaders;
+    private final long ttlNanos;
+
+    CachingCallAdapter(CallAdapter<R, T> delegate, ResponseCache cache, List<String> keyHeaders,
+        long ttlNanos) {
+      this.delegate = delegate;
+      this.cache = cache;
+      this.keyHeaders = keyHeaders;
+      this.ttlNanos = ttlNanos;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(
+          new CachingCall<>(call, delegate.responseType(), cache, keyHeaders, ttlNanos));
+    }
+  }
+
+  public static final class Builder {
+    private int maxSize = 100;
+    private long defaultTtlNanos = Long.MAX_VALUE;
+    private final List<String> keyHeaders = new ArrayList<>();
+
+    /** The maximum number of responses to hold. Defaults to 100. */
+    public Builder maxSize(int maxSize) {
+      if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0: " + maxSize);
+      this.maxSize = maxSize;
+      return this;
+    }
+
+    /**
+     * How long responses of methods which do not specify a {@link Cacheable#ttl() ttl} are kept.
+     * By default they are kept until evicted.
+     */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder defaultTtl(long ttl, TimeUnit unit) {
+      if (unit == null) throw new NullPointerException("unit == null");
+      if (ttl <= 0) throw new IllegalArgumentException("ttl <= 0: " + ttl);
+      this.defaultTtlNanos = unit.toNanos(ttl);
+      return this;
+    }
+
+    /**
+     * Include the values of the request header {@code name} in the cache key. Use this for headers
+     * such as {@code Accept-Language} or {@code Authorization} which change the response.
+     */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder addKeyHeader(String name) {
+      if (name == null) throw new NullPointerException("name == null");
+      keyHeaders.add(name);
+      return this;
+    }
+
+    public CachingCallAdapterFactory build() {
+      return new CachingCallAdapterFactory(new ResponseCache(maxSize),
+          Collections.unmodifiableList(new ArrayList<>(keyHeaders)), defaultTtlNanos);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/** Joins an identical in-flight call instead of making its own, if there is one. */
+final class CoalescingCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final Type responseType;
+  private final Flights flights;
+
+  // Guarded by this.
+  private boolean executed;
+  private boolean canceled;
+  private @Nullable Flights.Flight<T> flight;
+
+  CoalescingCall(Call<T> delegate, Type responseType, Flights flights) {
+    this.delegate = delegate;
+    this.responseType = responseType;
+    this.flights = flights;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    markExecuted();
+
+    Flights.Flight<T> flight = join();
+    if (flight == null) {
+      return delegate.execute();
+    }
+    if (flight.call == delegate) {
+      // Run the shared call in the background so that canceling this call releases its thread
+      // while the other participants keep waiting for the response.
+      flight.enqueue();
+    }
+    return flight.await(this);
+  }
+
+  @Override public void enqueue(final Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    markExecuted();
+
+    Flights.Flight<T> flight = join();
+    if (flight == null) {
+      delegate.enqueue(new Callback<T>() {
+        @Override public void onResponse(Call<T> call, Response<T> response) {
+          callback.onResponse(CoalescingCall.this, response);
+        }
+
+        @Override public void onFailure(Call<T> call, Throwable t) {
+          callback.onFailure(CoalescingCall.this, t);
+        }
+      });
+      return;
+    }
+    flight.subscribe(this, callback);
+    if (flight.call == delegate) {
+      flight.enqueue();
+    }
+  }
+
+  private synchronized void markExecuted() {
+    if (executed) throw new IllegalStateException("Already executed.");
+    executed = true;
+  }
+
+  /**
+   * Joins the flight for this call's request, starting a new one backed by {@link #delegate} if
+   * there is none. Returns null if this call must run on its own because it is already canceled
+   * or its request cannot be created.
+   */
+  private synchronized @Nullable Flights.Flight<T> join() {
+    if (canceled) return null;
+
+    Request request;
+    try {
+      request = delegate.request();
+    } catch (RuntimeException e) {
+      return null; // Let the delegate report the failure.
+    }
+
+    String key = responseType + " " + request.url() + "\n" + request.headers();
+    flight = flights.join(key, delegate, this);
+    return flight;
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    Flights.Flight<T> flight;
+    synchronized (this) {
+      if (canceled) return;
+      canceled = true;
+      flight = this.flight;
+    }
+    if (flight != null) {
+      flight.leave(this);
+    } else {
+      delegate.cancel();
+    }
+  }
+
+  @Override public synchronized boolean isCanceled() {
+    return canceled;
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new CoalescingCall<>(delegate.clone(), responseType, flights);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+}
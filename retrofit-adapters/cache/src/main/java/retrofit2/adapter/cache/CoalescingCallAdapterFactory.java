@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.HTTP;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which lets concurrent identical GET calls share
+ * a single network call and converted response.
+ * <p>
+ * Calls are identical when they are for the same method return type, URL and headers. The first
+ * call to start runs the request; calls which start before it completes wait for its result
+ * instead of making their own. Both {@link Call#execute()} and {@link Call#enqueue} may be mixed
+ * freely. Canceling a call only cancels the shared request once every call waiting on it has been
+ * canceled. The shared request always runs asynchronously, so a canceled {@code execute()} returns
+ * at once even if it started the request. Callbacks may be invoked on the thread which completed
+ * the shared request.
+ * <p>
+ * Successful bodies are shared by every waiting call and must be treated as immutable. Each call
+ * receives its own copy of an error body. Methods returning a raw {@link ResponseBody} cannot be
+ * shared.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps. When combined with {@link CachingCallAdapterFactory}, add that
+ * first so that only cache misses are coalesced.
+ */
+public final class CoalescingCallAdapterFactory extends CallAdapter.Factory {
+  /** Create an instance which coalesces calls to methods annotated with {@link Coalesce}. */
+  public static CoalescingCallAdapterFactory create() {
+    return new CoalescingCallAdapterFactory(false);
+  }
+
+  /** Create an instance which coalesces calls to every GET method. */
+  public static CoalescingCallAdapterFactory createForAllGets() {
+    return new CoalescingCallAdapterFactory(true);
+  }
+
+  private final boolean allGets;
+  private final Flights flights = new Flights();
+
+  private CoalescingCallAdapterFactory(boolean allGets) {
+    this.allGets = allGets;
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    boolean annotated = false;
+    boolean isGet = false;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Coalesce) {
+        annotated = true;
+      } else if (annotation instanceof GET) {
+        isGet = true;
+      } else if (annotation instanceof HTTP) {
+        isGet = "GET".equals(((HTTP) annotation).method());
+      }
+    }
+    if (annotated && !isGet) {
+      throw new IllegalArgumentException("@Coalesce can only be used on GET methods.");
+    }
+    if (!annotated && !(allGets && isGet)) {
+      return null;
+    }
+
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    if (delegate.responseType() == ResponseBody.class) {
+      if (annotated) {
+        throw new IllegalArgumentException(
+            "@Coalesce cannot share a ResponseBody. Use a converted type instead.");
+      }
+      return null;
+    }
+    return new CoalescingCallAdapter<>(delegate, flights);
+  }
+
+  /** Returns the number of shared requests currently in flight. */
+  public int inFlightCount() {
+    return flights.size();
+  }
+
+  private static final class CoalescingCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final Flights flights;
+
+    CoalescingCallAdapter(CallAdapter<R, T> delegate, Flights flights) {
+      this.delegate = delegate;
+      this.flights = flights;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(new CoalescingCall<>(call, delegate.responseType(), flights));
+    }
+  }
+}
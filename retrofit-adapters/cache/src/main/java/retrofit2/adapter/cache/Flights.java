@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Tracks the calls currently in flight by key so that identical requests join an existing call
+ * rather than starting their own.
+ */
+final class Flights {
+  private final Map<String, Flight<?>> flights = new HashMap<>();
+
+  /**
+   * Returns the flight for {@code key}, registering {@code participant} with it. If there is none,
+   * a new flight which will run {@code call} is returned and the caller must start it.
+   */
+  @SuppressWarnings("unchecked") // Keys include the response type.
+  synchronized <T> Flight<T> join(String key, Call<T> call, CoalescingCall<T> participant) {
+    Flight<T> flight = (Flight<T>) flights.get(key);
+    if (flight == null) {
+      flight = new Flight<>(this, key, call);
+      flights.put(key, flight);
+    }
+    flight.add(participant);
+    return flight;
+  }
+
+  synchronized int size() {
+    return flights.size();
+  }
+
+  /** Removes {@code flight} so that later requests start a new one. */
+  synchronized void remove(Flight<?> flight) {
+    if (flights.get(flight.key) == flight) {
+      flights.remove(flight.key);
+    }
+  }
+
+  /**
+   * One shared call and its participants. Participants which cancel leave the flight; the shared
+   * call is only canceled once every participant has left.
+   */
+  static final class Flight<T> {
+    private final Flights flights;
+    final String key;
+    final Call<T> call;
+
+    // Guarded by this.
+    private final Set<CoalescingCall<T>> participants = new HashSet<>();
+    private final Map<CoalescingCall<T>, Callback<T>> callbacks = new HashMap<>();
+    /** Released when the participant's blocking {@link #await} may return. */
+    private final Map<CoalescingCall<T>, CountDownLatch> latches = new HashMap<>();
+    private boolean done;
+    private @Nullable Response<T> response;
+    private @Nullable byte[] errorBody;
+    private @Nullable Throwable failure;
+
+    Flight(Flights flights, String key, Call<T> call) {
+      this.flights = flights;
+      this.key = key;
+      this.call = call;
+    }
+
+    synchronized void add(CoalescingCall<T> participant) {
+      participants.add(participant);
+    }
+
+    /** Runs the shared call asynchronously. */
+    void enqueue() {
+      call.enqueue(new Callback<T>() {
+        @Override public void onResponse(Call<T> call, Response<T> response) {
+          complete(response, null);
+        }
+
+        @Override public void onFailure(Call<T> call, Throwable t) {
+          complete(null, t);
+        }
+      });
+    }
+
+    /**
+     * Blocks until the shared call completes or {@code participant} is canceled, and returns the
+     * participant's copy of the response.
+     */
+    Response<T> await(CoalescingCall<T> participant) throws IOException {
+      // Wait on a latch rather than this monitor so that virtual threads don't pin their carrier
+      // for the whole round trip.
+      CountDownLatch latch = null;
+      synchronized (this) {
+        if (!done && participants.contains(participant)) {
+          latch = new CountDownLatch(1);
+          latches.put(participant, latch);
+        }
+      }
+      if (latch != null) {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          leave(participant);
+          throw new InterruptedIOException();
+        }
+      }
+
+      boolean canceled;
+      synchronized (this) {
+        canceled = !participants.contains(participant);
+      }
+      if (canceled) throw new IOException("Canceled");
+      return result();
+    }
+
+    /**
+     * Invokes {@code callback} for {@code participant} once the shared call completes, or
+     * immediately if it already has.
+     */
+    void subscribe(CoalescingCall<T> participant, Callback<T> callback) {
+      boolean canceled;
+      synchronized (this) {
+        canceled = !participants.contains(participant);
+        if (!done && !canceled) {
+          callbacks.put(participant, callback);
+          return;
+        }
+      }
+      if (canceled) {
+        callback.onFailure(participant, new IOException("Canceled"));
+      } else {
+        deliver(participant, callback);
+      }
+    }
+
+    /** Removes {@code participant}, canceling the shared call if nobody else is waiting for it. */
+    void leave(CoalescingCall<T> participant) {
+      Callback<T> callback;
+      CountDownLatch latch;
+      boolean cancelCall;
+      synchronized (flights) {
+        synchronized (this) {
+          if (done || !participants.remove(participant)) return;
+          callback = callbacks.remove(participant);
+          latch = latches.remove(participant);
+          cancelCall = participants.isEmpty();
+        }
+        if (cancelCall) flights.remove(this);
+      }
+
+      if (latch != null) latch.countDown();
+      if (cancelCall) call.cancel();
+      if (callback != null) callback.onFailure(participant, new IOException("Canceled"));
+    }
+
+    private void complete(@Nullable Response<T> response, @Nullable Throwable failure) {
+      flights.remove(this);
+
+      byte[] errorBody = null;
+      if (response != null && !response.isSuccessful()) {
+        // Error bodies are single-use so each participant reads its own copy.
+        ResponseBody body = response.errorBody();
+        if (body != null) {
+          try {
+            errorBody = body.bytes();
+          } catch (IOException e) {
+            response = null;
+            failure = e;
+          }
+        }
+      }
+
+      Map<CoalescingCall<T>, Callback<T>> callbacks;
+      List<CountDownLatch> latches;
+      synchronized (this) {
+        this.done = true;
+        this.response = response;
+        this.errorBody = errorBody;
+        this.failure = failure;
+        callbacks = new HashMap<>(this.callbacks);
+        this.callbacks.clear();
+        latches = new ArrayList<>(this.latches.values());
+        this.latches.clear();
+      }
+
+      for (CountDownLatch latch : latches) {
+        latch.countDown();
+      }
+
+      for (Map.Entry<CoalescingCall<T>, Callback<T>> entry : callbacks.entrySet()) {
+        deliver(entry.getKey(), entry.getValue());
+      }
+    }
+
+    private void deliver(CoalescingCall<T> participant, Callback<T> callback) {
+      Response<T> response;
+      try {
+        response = result();
+      } catch (Throwable t) {
+        callback.onFailure(participant, t);
+        return;
+      }
+      callback.onResponse(participant, response);
+    }
+
+    private Response<T> result() throws IOException {
+      Response<T> response;
+      byte[] errorBody;
+      Throwable failure;
+      synchronized (this) {
+        response = this.response;
+        errorBody = this.errorBody;
+        failure = this.failure;
+      }
+
+      if (failure != null) {
+        if (failure instanceof IOException) throw (IOException) failure;
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        throw new RuntimeException(failure);
+      }
+      if (response == null) throw new AssertionError();
+      if (response.isSuccessful() || errorBody == null) {
+        return response;
+      }
+      ResponseBody body = response.errorBody();
+      MediaType contentType = body != null ? body.contentType() : null;
+      return Response.error(ResponseBody.create(contentType, errorBody), response.raw());
+    }
+  }
+}
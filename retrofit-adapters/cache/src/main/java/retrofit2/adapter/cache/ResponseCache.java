@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import retrofit2.Response;
+
+/** A bounded, least-recently-used map of successful responses which expire after a TTL. */
+final class ResponseCache {
+  private final LinkedHashMap<String, Entry> entries;
+
+  ResponseCache(final int maxSize) {
+    entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  synchronized @Nullable Response<?> get(String key, long nowNanos) {
+    Entry entry = entries.get(key);
+    if (entry == null) return null;
+    if (nowNanos - entry.storedAtNanos >= entry.ttlNanos) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.response;
+  }
+
+  synchronized void put(String key, Response<?> response, long nowNanos, long ttlNanos) {
+    entries.put(key, new Entry(response, nowNanos, ttlNanos));
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized void evictAll() {
+    entries.clear();
+  }
+
+  private static final class Entry {
+    final Response<?> response;
+    final long storedAtNanos;
+    final long ttlNanos;
+
+    Entry(Response<?> response, long storedAtNanos, long ttlNanos) {
+      this.response = response;
+      this.storedAtNanos = storedAtNanos;
+      this.ttlNanos = ttlNanos;
+    }
+  }
+}
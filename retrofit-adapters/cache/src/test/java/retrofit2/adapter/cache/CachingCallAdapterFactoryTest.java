@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.POST;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class CachingCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Cacheable @GET("/") Call<String> get(@Query("q") String q);
+    @Cacheable @GET("/") Call<String> getWithLanguage(@Header("Accept-Language") String language);
+    @Cacheable(ttl = 1, unit = TimeUnit.MILLISECONDS) @GET("/") Call<String> shortLived();
+    @GET("/") Call<String> notCacheable();
+  }
+
+  interface PostService {
+    @Cacheable @POST("/") Call<String> post();
+  }
+
+  interface OneShotService {
+    @Cacheable @GET("/") Call<ResponseBody> raw();
+    @Cacheable @Streaming @GET("/") Call<String> streaming();
+  }
+
+  private CachingCallAdapterFactory factory;
+  private Service service;
+
+  @Before public void setUp() {
+    factory = new CachingCallAdapterFactory.Builder()
+        .maxSize(2)
+        .addKeyHeader("Accept-Language")
+        .build();
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test public void hitSkipsNetwork() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    assertThat(service.get("a").execute().body()).isEqualTo("Hi");
+    Response<String> cached = service.get("a").execute();
+    assertThat(cached.body()).isEqualTo("Hi");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(factory.size()).isEqualTo(1);
+  }
+
+  @Test public void keyIncludesUrlAndSelectedHeaders() throws IOException {
+    server.enqueue(new MockResponse().setBody("A"));
+    server.enqueue(new MockResponse().setBody("B"));
+    server.enqueue(new MockResponse().setBody("en"));
+    server.enqueue(new MockResponse().setBody("fr"));
+
+    assertThat(service.get("a").execute().body()).isEqualTo("A");
+    assertThat(service.get("b").execute().body()).isEqualTo("B");
+    assertThat(service.getWithLanguage("en").execute().body()).isEqualTo("en");
+    assertThat(service.getWithLanguage("fr").execute().body()).isEqualTo("fr");
+    assertThat(service.getWithLanguage("fr").execute().body()).isEqualTo("fr");
+    assertThat(server.getRequestCount()).isEqualTo(4);
+  }
+
+  @Test public void leastRecentlyUsedIsEvicted() throws IOException {
+    server.enqueue(new MockResponse().setBody("A"));
+    server.enqueue(new MockResponse().setBody("B"));
+    server.enqueue(new MockResponse().setBody("C"));
+    server.enqueue(new MockResponse().setBody("B2"));
+
+    service.get("a").execute();
+    service.get("b").execute();
+    service.get("a").execute(); // Hit makes "b" the eldest.
+    service.get("c").execute();
+    assertThat(factory.size()).isEqualTo(2);
+    assertThat(service.get("a").execute().body()).isEqualTo("A");
+    assertThat(service.get("b").execute().body()).isEqualTo("B2");
+    assertThat(server.getRequestCount()).isEqualTo(4);
+  }
+
+  @Test public void expiredResponseIsRefetched() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hello"));
+
+    assertThat(service.shortLived().execute().body()).isEqualTo("Hi");
+    Thread.sleep(10);
+    assertThat(service.shortLived().execute().body()).isEqualTo("Hello");
+  }
+
+  @Test public void unsuccessfulResponsesAreNotCached() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    assertThat(service.get("a").execute().isSuccessful()).isFalse();
+    assertThat(service.get("a").execute().body()).isEqualTo("Hi");
+    assertThat(factory.size()).isEqualTo(1);
+  }
+
+  @Test public void unannotatedMethodsAreNotCached() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hello"));
+
+    assertThat(service.notCacheable().execute().body()).isEqualTo("Hi");
+    assertThat(service.notCacheable().execute().body()).isEqualTo("Hello");
+    assertThat(factory.size()).isEqualTo(0);
+  }
+
+  @Test public void enqueueHitAndMiss() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    assertThat(enqueue(service.get("a")).body()).isEqualTo("Hi");
+    assertThat(enqueue(service.get("a")).body()).isEqualTo("Hi");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void executeTwiceThrows() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Call<String> call = service.get("a");
+    call.execute();
+    try {
+      call.execute();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Already executed.");
+    }
+    assertThat(call.clone().execute().body()).isEqualTo("Hi");
+  }
+
+  @Test public void evictAll() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hello"));
+
+    service.get("a").execute();
+    factory.evictAll();
+    assertThat(service.get("a").execute().body()).isEqualTo("Hello");
+  }
+
+  @Test public void nonGetMethodThrows() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    PostService postService = retrofit.create(PostService.class);
+    try {
+      postService.post();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("@Cacheable can only be used on GET methods.");
+    }
+  }
+
+  @Test public void responseBodyThrows() {
+    OneShotService oneShotService = oneShotService();
+    try {
+      oneShotService.raw();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause())
+          .hasMessage("@Cacheable cannot share a ResponseBody. Use a converted type instead.");
+    }
+  }
+
+  @Test public void streamingMethodThrows() {
+    OneShotService oneShotService = oneShotService();
+    try {
+      oneShotService.streaming();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("@Cacheable cannot be used on @Streaming methods.");
+    }
+  }
+
+  private OneShotService oneShotService() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    return retrofit.create(OneShotService.class);
+  }
+
+  private static Response<String> enqueue(Call<String> call) throws InterruptedException {
+    final AtomicReference<Response<String>> responseRef = new AtomicReference<>();
+    final CountDownLatch latch = new CountDownLatch(1);
+    call.enqueue(new Callback<String>() {
+      @Override public void onResponse(Call<String> call, Response<String> response) {
+        responseRef.set(response);
+        latch.countDown();
+      }
+
+      @Override public void onFailure(Call<String> call, Throwable t) {
+        t.printStackTrace();
+        latch.countDown();
+      }
+    });
+    assertTrue(latch.await(10, SECONDS));
+    return responseRef.get();
+  }
+}
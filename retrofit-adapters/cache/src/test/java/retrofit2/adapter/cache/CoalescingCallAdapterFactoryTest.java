@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Query;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class CoalescingCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Coalesce @GET("/") Call<String> get(@Query("q") String q);
+    @GET("/") Call<String> notAnnotated();
+    @Coalesce @GET("/") Call<ResponseBody> raw();
+    @Coalesce @POST("/") Call<String> post();
+  }
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After public void tearDown() {
+    release.countDown();
+  }
+
+  private Service service(CoalescingCallAdapterFactory factory) {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    return retrofit.create(Service.class);
+  }
+
+  /** Holds every request until {@link #release} is counted down. */
+  private void blockResponses(final MockResponse response) {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        release.await();
+        return response;
+      }
+    });
+  }
+
+  @Test public void concurrentEnqueuesShareOneCall() throws InterruptedException {
+    blockResponses(new MockResponse().setBody("Hi"));
+    CoalescingCallAdapterFactory factory = CoalescingCallAdapterFactory.create();
+    Service service = service(factory);
+
+    List<RecordingCallback> callbacks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      RecordingCallback callback = new RecordingCallback();
+      service.get("a").enqueue(callback);
+      callbacks.add(callback);
+    }
+    assertThat(factory.inFlightCount()).isEqualTo(1);
+    release.countDown();
+
+    for (RecordingCallback callback : callbacks) {
+      assertThat(callback.await().body()).isEqualTo("Hi");
+    }
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(factory.inFlightCount()).isEqualTo(0);
+  }
+
+  @Test public void enqueueJoinsExecutingCall() throws Exception {
+    blockResponses(new MockResponse().setBody("Hi"));
+    final Service service = service(CoalescingCallAdapterFactory.create());
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Response<String>> executed = executor.submit(new Callable<Response<String>>() {
+        @Override public Response<String> call() throws IOException {
+          return service.get("a").execute();
+        }
+      });
+      server.takeRequest(); // The executing call has started the flight.
+
+      RecordingCallback callback = new RecordingCallback();
+      service.get("a").enqueue(callback);
+      release.countDown();
+
+      assertThat(executed.get(10, SECONDS).body()).isEqualTo("Hi");
+      assertThat(callback.await().body()).isEqualTo("Hi");
+      assertThat(server.getRequestCount()).isEqualTo(1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test public void differentRequestsAreNotShared() throws InterruptedException {
+    blockResponses(new MockResponse().setBody("Hi"));
+    CoalescingCallAdapterFactory factory = CoalescingCallAdapterFactory.create();
+    Service service = service(factory);
+
+    RecordingCallback a = new RecordingCallback();
+    RecordingCallback b = new RecordingCallback();
+    service.get("a").enqueue(a);
+    service.get("b").enqueue(b);
+    assertThat(factory.inFlightCount()).isEqualTo(2);
+    release.countDown();
+
+    a.await();
+    b.await();
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void sequentialCallsAreNotShared() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hello"));
+    Service service = service(CoalescingCallAdapterFactory.create());
+
+    assertThat(service.get("a").execute().body()).isEqualTo("Hi");
+    assertThat(service.get("a").execute().body()).isEqualTo("Hello");
+  }
+
+  @Test public void cancelIsReferenceCounted() throws InterruptedException {
+    blockResponses(new MockResponse().setBody("Hi"));
+    CoalescingCallAdapterFactory factory = CoalescingCallAdapterFactory.create();
+    Service service = service(factory);
+
+    Call<String> first = service.get("a");
+    RecordingCallback firstCallback = new RecordingCallback();
+    first.enqueue(firstCallback);
+    RecordingCallback secondCallback = new RecordingCallback();
+    service.get("a").enqueue(secondCallback);
+
+    first.cancel();
+    assertThat(first.isCanceled()).isTrue();
+    assertThat(firstCallback.awaitFailure()).hasMessage("Canceled");
+    assertThat(factory.inFlightCount()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(secondCallback.await().body()).isEqualTo("Hi");
+  }
+
+  @Test public void cancelReleasesExecutingCallWhichStartedFlight() throws Exception {
+    blockResponses(new MockResponse().setBody("Hi"));
+    final Service service = service(CoalescingCallAdapterFactory.create());
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Call<String> first = service.get("a");
+      Future<Response<String>> executed = executor.submit(new Callable<Response<String>>() {
+        @Override public Response<String> call() throws IOException {
+          return first.execute();
+        }
+      });
+      server.takeRequest(); // The executing call has started the flight.
+      RecordingCallback second = new RecordingCallback();
+      service.get("a").enqueue(second);
+
+      first.cancel();
+      try {
+        executed.get(10, SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).isInstanceOf(IOException.class).hasMessage("Canceled");
+      }
+
+      release.countDown();
+      assertThat(second.await().body()).isEqualTo("Hi");
+      assertThat(server.getRequestCount()).isEqualTo(1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test public void cancelingEveryCallCancelsSharedCall() throws IOException, InterruptedException {
+    blockResponses(new MockResponse().setBody("Hi"));
+    CoalescingCallAdapterFactory factory = CoalescingCallAdapterFactory.create();
+    Service service = service(factory);
+
+    Call<String> first = service.get("a");
+    RecordingCallback firstCallback = new RecordingCallback();
+    first.enqueue(firstCallback);
+    Call<String> second = service.get("a");
+    RecordingCallback secondCallback = new RecordingCallback();
+    second.enqueue(secondCallback);
+
+    first.cancel();
+    second.cancel();
+    assertThat(firstCallback.awaitFailure()).hasMessage("Canceled");
+    assertThat(secondCallback.awaitFailure()).hasMessage("Canceled");
+    assertThat(factory.inFlightCount()).isEqualTo(0);
+
+    release.countDown();
+    assertThat(service.get("a").execute().body()).isEqualTo("Hi");
+  }
+
+  @Test public void errorBodyIsCopiedForEachCall() throws IOException, InterruptedException {
+    blockResponses(new MockResponse().setResponseCode(404).setBody("Nope"));
+    Service service = service(CoalescingCallAdapterFactory.create());
+
+    RecordingCallback first = new RecordingCallback();
+    service.get("a").enqueue(first);
+    RecordingCallback second = new RecordingCallback();
+    service.get("a").enqueue(second);
+    release.countDown();
+
+    assertThat(first.await().errorBody().string()).isEqualTo("Nope");
+    assertThat(second.await().errorBody().string()).isEqualTo("Nope");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void unannotatedMethodsOnlyCoalescedForAllGets() throws InterruptedException {
+    blockResponses(new MockResponse().setBody("Hi"));
+    CoalescingCallAdapterFactory annotatedOnly = CoalescingCallAdapterFactory.create();
+    service(annotatedOnly).notAnnotated().enqueue(new RecordingCallback());
+    assertThat(annotatedOnly.inFlightCount()).isEqualTo(0);
+
+    CoalescingCallAdapterFactory allGets = CoalescingCallAdapterFactory.createForAllGets();
+    Service service = service(allGets);
+    RecordingCallback first = new RecordingCallback();
+    service.notAnnotated().enqueue(first);
+    RecordingCallback second = new RecordingCallback();
+    service.notAnnotated().enqueue(second);
+    assertThat(allGets.inFlightCount()).isEqualTo(1);
+    release.countDown();
+
+    assertThat(first.await().body()).isEqualTo("Hi");
+    assertThat(second.await().body()).isEqualTo("Hi");
+  }
+
+  @Test public void nonGetMethodThrows() {
+    Service service = service(CoalescingCallAdapterFactory.create());
+    try {
+      service.post();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("@Coalesce can only be used on GET methods.");
+    }
+  }
+
+  @Test public void responseBodyThrows() {
+    Service service = service(CoalescingCallAdapterFactory.create());
+    try {
+      service.raw();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause())
+          .hasMessage("@Coalesce cannot share a ResponseBody. Use a converted type instead.");
+    }
+  }
+
+  static final class RecordingCallback implements Callback<String> {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile Response<String> response;
+    private volatile Throwable failure;
+
+    @Override public void onResponse(Call<String> call, Response<String> response) {
+      this.response = response;
+      latch.countDown();
+    }
+
+    @Override public void onFailure(Call<String> call, Throwable t) {
+      this.failure = t;
+      latch.countDown();
+    }
+
+    Response<String> await() throws InterruptedException {
+      assertTrue(latch.await(10, SECONDS));
+      if (failure != null) throw new AssertionError(failure);
+      return response;
+    }
+
+    Throwable awaitFailure() throws InterruptedException {
+      assertTrue(latch.await(10, SECONDS));
+      assertThat(failure).isNotNull();
+      return failure;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/** Emits the body of a successful response, or signals {@link HttpException} for any other. */
+final class BodyPublisher<T> implements Publisher<T> {
+  private final Publisher<Response<T>> upstream;
+
+  BodyPublisher(Publisher<Response<T>> upstream) {
+    this.upstream = upstream;
+  }
+
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  @Override public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) throw new NullPointerException("subscriber == null");
+    upstream.subscribe(new BodySubscriber<T>(subscriber));
+  }
+
+  private static final class BodySubscriber<R> implements Subscriber<Response<R>> {
+    private final Subscriber<? super R> subscriber;
+    private boolean terminated;
+
+    BodySubscriber(Subscriber<? super R> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override public void onSubscribe(Subscription subscription) {
+      subscriber.onSubscribe(subscription);
+    }
+
+    @Override public void onNext(Response<R> response) {
+      if (response.isSuccessful()) {
+        R body = response.body();
+        // A Publisher cannot emit null, so a response without a body only completes.
+        if (body != null) {
+          subscriber.onNext(body);
+        }
+      } else {
+        terminated = true;
+        subscriber.onError(new HttpException(response));
+      }
+    }
+
+    @Override public void onComplete() {
+      if (!terminated) {
+        subscriber.onComplete();
+      }
+    }
+
+    @Override public void onError(Throwable throwable) {
+      if (!terminated) {
+        subscriber.onError(throwable);
+      }
+    }
+  }
+}
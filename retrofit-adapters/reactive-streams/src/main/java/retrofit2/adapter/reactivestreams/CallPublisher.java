@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/** Emits the response to a clone of a call, which is enqueued on the first request for it. */
+final class CallPublisher<T> implements Publisher<Response<T>> {
+  private final Call<T> originalCall;
+
+  CallPublisher(Call<T> originalCall) {
+    this.originalCall = originalCall;
+  }
+
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  @Override public void subscribe(Subscriber<? super Response<T>> subscriber) {
+    if (subscriber == null) throw new NullPointerException("subscriber == null");
+    // Since Call is a one-shot type, clone it for each new subscriber.
+    subscriber.onSubscribe(new CallSubscription<>(originalCall.clone(), subscriber));
+  }
+
+  private static final class CallSubscription<T> implements Subscription, Callback<T> {
+    private final Call<T> call;
+    private final Subscriber<? super Response<T>> subscriber;
+    /** Set once the call is enqueued. */
+    private final AtomicBoolean started = new AtomicBoolean();
+    /** Set once the subscriber has been signaled a terminal event or has canceled. */
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    CallSubscription(Call<T> call, Subscriber<? super Response<T>> subscriber) {
+      this.call = call;
+      this.subscriber = subscriber;
+    }
+
+    @Override public void request(long n) {
+      if (n <= 0L) {
+        if (terminated.compareAndSet(false, true)) {
+          call.cancel();
+          subscriber.onError(new IllegalArgumentException(
+              "§3.9 violated: positive request amount required but it was " + n));
+        }
+        return;
+      }
+      if (!terminated.get() && started.compareAndSet(false, true)) {
+        call.enqueue(this);
+      }
+    }
+
+    @Override public void cancel() {
+      terminated.set(true);
+      call.cancel();
+    }
+
+    @Override public void onResponse(Call<T> call, Response<T> response) {
+      if (!terminated.compareAndSet(false, true)) return;
+      subscriber.onNext(response);
+      subscriber.onComplete();
+    }
+
+    @Override public void onFailure(Call<T> call, Throwable t) {
+      if (!terminated.compareAndSet(false, true)) return;
+      subscriber.onError(t);
+    }
+  }
+}
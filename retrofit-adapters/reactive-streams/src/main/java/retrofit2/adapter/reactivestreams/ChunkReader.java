@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/** Reads a body in chunks of what has arrived, up to {@value #CHUNK_SIZE} bytes each. */
+final class ChunkReader implements ElementReader<ByteString> {
+  static final long CHUNK_SIZE = 8192L;
+
+  @Override public @Nullable ByteString read(ResponseBody body) throws IOException {
+    BufferedSource source = body.source();
+    // Reads one segment from the network only when nothing is buffered.
+    if (source.exhausted()) {
+      return null;
+    }
+    return source.readByteString(Math.min(source.buffer().size(), CHUNK_SIZE));
+  }
+}
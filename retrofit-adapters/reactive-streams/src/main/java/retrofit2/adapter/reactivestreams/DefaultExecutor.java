@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/** A lazily created pool of daemon threads shared by factories which are not given their own. */
+final class DefaultExecutor {
+  static final Executor INSTANCE = Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Retrofit Streaming Reader");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private DefaultExecutor() {
+    throw new AssertionError("No instances.");
+  }
+}
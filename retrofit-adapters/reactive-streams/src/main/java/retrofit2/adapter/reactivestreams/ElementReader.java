@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+
+/** Decodes successive elements from a streamed response body. */
+interface ElementReader<T> {
+  /**
+   * Returns the next element of {@code body}, or null if it is exhausted. Implementations should
+   * read no further from the body than the element they return.
+   */
+  @Nullable T read(ResponseBody body) throws IOException;
+}
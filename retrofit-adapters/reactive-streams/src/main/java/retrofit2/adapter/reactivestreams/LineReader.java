@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import retrofit2.Converter;
+
+/**
+ * Reads a body one line at a time, such as JSON lines, and converts each non-blank line with
+ * {@code converter}. Lines end with {@code \n} or {@code \r\n}.
+ */
+final class LineReader<T> implements ElementReader<T> {
+  private final Converter<ResponseBody, T> converter;
+
+  LineReader(Converter<ResponseBody, T> converter) {
+    this.converter = converter;
+  }
+
+  @Override public @Nullable T read(ResponseBody body) throws IOException {
+    BufferedSource source = body.source();
+    while (!source.exhausted()) {
+      long newline = source.indexOf((byte) '\n');
+      ByteString line;
+      if (newline == -1L) {
+        line = source.readByteString();
+      } else {
+        line = source.readByteString(newline);
+        source.skip(1L);
+      }
+      if (line.size() > 0 && line.getByte(line.size() - 1) == '\r') {
+        line = line.substring(0, line.size() - 1);
+      }
+      if (line.size() == 0) {
+        continue;
+      }
+
+      Buffer buffer = new Buffer().write(line);
+      T element = converter.convert(ResponseBody.create(body.contentType(), line.size(), buffer));
+      if (element == null) {
+        throw new NullPointerException("Converter returned null for line: " + line.utf8());
+      }
+      return element;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+import org.reactivestreams.Publisher;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Converter;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.Streaming;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which creates Reactive Streams
+ * {@link Publisher Publishers}.
+ * <p>
+ * Adding this class to {@link Retrofit} allows you to return {@link Publisher} from service
+ * methods.
+ * <pre><code>
+ * interface MyService {
+ *   &#64;GET("user/me")
+ *   Publisher&lt;User&gt; getUser()
+ * }
+ * </code></pre>
+ * There are two configurations supported for the {@code Publisher} type parameter:
+ * <ul>
+ * <li>Direct body (e.g., {@code Publisher<User>}) emits the deserialized body for 2XX responses,
+ * signals {@link retrofit2.HttpException HttpException} for non-2XX responses, and signals
+ * {@link java.io.IOException IOException} for network errors.</li>
+ * <li>Response wrapped body (e.g., {@code Publisher<Response<User>>}) emits a {@link Response}
+ * object for all HTTP responses and signals {@link java.io.IOException IOException} for network
+ * errors.</li>
+ * </ul>
+ * Either way the request is sent when the subscriber first requests an item.
+ * <p>
+ * Methods annotated with {@link Streaming @Streaming} instead emit the body as it is read. A
+ * {@code Publisher<ByteString>} emits chunks of the body as they arrive. Any other
+ * {@code Publisher<T>} emits one element for each non-blank line of the body, such as JSON lines,
+ * decoded by the converter for {@code T}. The body is only read while the subscriber has
+ * outstanding demand, so a slow subscriber holds at most about one chunk or line in memory.
+ */
+public final class ReactiveStreamsCallAdapterFactory extends CallAdapter.Factory {
+  /**
+   * Create an instance which reads {@link Streaming @Streaming} bodies on a shared pool of daemon
+   * threads.
+   */
+  public static ReactiveStreamsCallAdapterFactory create() {
+    return new ReactiveStreamsCallAdapterFactory(DefaultExecutor.INSTANCE);
+  }
+
+  /**
+   * Create an instance which sends {@link Streaming @Streaming} requests and reads their bodies on
+   * {@code executor}. Each subscription occupies one thread while it is reading.
+   */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static ReactiveStreamsCallAdapterFactory create(Executor executor) {
+    if (executor == null) throw new NullPointerException("executor == null");
+    return new ReactiveStreamsCallAdapterFactory(executor);
+  }
+
+  private final Executor executor;
+
+  private ReactiveStreamsCallAdapterFactory(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    if (getRawType(returnType) != Publisher.class) {
+      return null;
+    }
+    if (!(returnType instanceof ParameterizedType)) {
+      throw new IllegalStateException("Publisher return type must be parameterized"
+          + " as Publisher<Foo> or Publisher<? extends Foo>");
+    }
+    Type innerType = getParameterUpperBound(0, (ParameterizedType) returnType);
+    boolean isStreaming = isStreaming(annotations);
+
+    if (getRawType(innerType) == Response.class) {
+      if (isStreaming) {
+        throw new IllegalStateException(
+            "@Streaming Publisher must emit body elements, not Response");
+      }
+      if (!(innerType instanceof ParameterizedType)) {
+        throw new IllegalStateException("Response must be parameterized"
+            + " as Response<Foo> or Response<? extends Foo>");
+      }
+      Type responseType = getParameterUpperBound(0, (ParameterizedType) innerType);
+      return new ResponseCallAdapter<>(responseType);
+    }
+
+    if (isStreaming) {
+      if (innerType == ByteString.class) {
+        return new StreamingCallAdapter<>(new ChunkReader(), executor);
+      }
+      Converter<ResponseBody, Object> converter =
+          retrofit.responseBodyConverter(innerType, annotations);
+      return new StreamingCallAdapter<>(new LineReader<>(converter), executor);
+    }
+
+    return new BodyCallAdapter<>(innerType);
+  }
+
+  private static boolean isStreaming(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Streaming) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class BodyCallAdapter<R> implements CallAdapter<R, Publisher<R>> {
+    private final Type responseType;
+
+    BodyCallAdapter(Type responseType) {
+      this.responseType = responseType;
+    }
+
+    @Override public Type responseType() {
+      return responseType;
+    }
+
+    @Override public Publisher<R> adapt(Call<R> call) {
+      return new BodyPublisher<>(new CallPublisher<>(call));
+    }
+  }
+
+  private static final class ResponseCallAdapter<R>
+      implements CallAdapter<R, Publisher<Response<R>>> {
+    private final Type responseType;
+
+    ResponseCallAdapter(Type responseType) {
+      this.responseType = responseType;
+    }
+
+    @Override public Type responseType() {
+      return responseType;
+    }
+
+    @Override public Publisher<Response<R>> adapt(Call<R> call) {
+      return new CallPublisher<>(call);
+    }
+  }
+
+  private static final class StreamingCallAdapter<T>
+      implements CallAdapter<ResponseBody, Publisher<T>> {
+    private final ElementReader<T> reader;
+    private final Executor executor;
+
+    StreamingCallAdapter(ElementReader<T> reader, Executor executor) {
+      this.reader = reader;
+      this.executor = executor;
+    }
+
+    @Override public Type responseType() {
+      // Paired with @Streaming this asks Retrofit for the unbuffered body.
+      return ResponseBody.class;
+    }
+
+    @Override public Publisher<T> adapt(Call<ResponseBody> call) {
+      return new StreamingPublisher<>(call, reader, executor);
+    }
+  }
+}
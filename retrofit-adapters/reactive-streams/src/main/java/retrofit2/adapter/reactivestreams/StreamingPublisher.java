@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import retrofit2.Call;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Emits the elements which an {@link ElementReader} decodes from the streamed body of a clone of
+ * a call. The call is executed, and its body read, on an executor and only while the subscriber
+ * has outstanding demand.
+ */
+final class StreamingPublisher<T> implements Publisher<T> {
+  private final Call<ResponseBody> originalCall;
+  private final ElementReader<T> reader;
+  private final Executor executor;
+
+  StreamingPublisher(Call<ResponseBody> originalCall, ElementReader<T> reader,
+      Executor executor) {
+    this.originalCall = originalCall;
+    this.reader = reader;
+    this.executor = executor;
+  }
+
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  @Override public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) throw new NullPointerException("subscriber == null");
+    // Since Call is a one-shot type, clone it for each new subscriber.
+    subscriber.onSubscribe(
+        new StreamingSubscription<>(originalCall.clone(), reader, executor, subscriber));
+  }
+
+  private static final class StreamingSubscription<T> implements Subscription, Runnable {
+    private final Call<ResponseBody> call;
+    private final ElementReader<T> reader;
+    private final Executor executor;
+    private final Subscriber<? super T> subscriber;
+    /** Outstanding demand, or {@link Long#MAX_VALUE} once it is unbounded. */
+    private final AtomicLong requested = new AtomicLong();
+    /**
+     * The number of times a drain was asked for and not yet performed. The drain which terminates
+     * the subscription leaves this non-zero so that no other drain ever runs.
+     */
+    private final AtomicInteger missed = new AtomicInteger();
+    private volatile boolean canceled;
+    private volatile @Nullable Throwable invalidRequest;
+
+    /** Only accessed by the drain, or by a {@link #drain()} call whose executor rejected it. */
+    private @Nullable ResponseBody body;
+
+    StreamingSubscription(Call<ResponseBody> call, ElementReader<T> reader, Executor executor,
+        Subscriber<? super T> subscriber) {
+      this.call = call;
+      this.reader = reader;
+      this.executor = executor;
+      this.subscriber = subscriber;
+    }
+
+    @Override public void request(long n) {
+      if (n <= 0L) {
+        invalidRequest = new IllegalArgumentException(
+            "§3.9 violated: positive request amount required but it was " + n);
+      } else {
+        addRequested(n);
+      }
+      drain();
+    }
+
+    @Override public void cancel() {
+      canceled = true;
+      // Unblocks a drain which is waiting on the network.
+      call.cancel();
+      drain();
+    }
+
+    private void addRequested(long n) {
+      while (true) {
+        long current = requested.get();
+        if (current == Long.MAX_VALUE) return;
+        long next = current + n;
+        if (next < 0L) next = Long.MAX_VALUE; // Overflowed: demand is unbounded.
+        if (requested.compareAndSet(current, next)) return;
+      }
+    }
+
+    private void drain() {
+      if (missed.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RuntimeException e) {
+          // No drain is running, so terminate here. Leaving missed non-zero stops any later one.
+          call.cancel();
+          closeBody();
+          if (!canceled) subscriber.onError(e);
+        }
+      }
+    }
+
+    @Override public void run() {
+      int missed = 1;
+      while (true) {
+        if (!emit()) {
+          return; // Terminated.
+        }
+        missed = this.missed.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    /** Emits up to the outstanding demand. Returns false once the subscription has terminated. */
+    private boolean emit() {
+      if (canceled) {
+        closeBody();
+        return false;
+      }
+      Throwable invalidRequest = this.invalidRequest;
+      if (invalidRequest != null) {
+        call.cancel();
+        closeBody();
+        subscriber.onError(invalidRequest);
+        return false;
+      }
+      long requested = this.requested.get();
+      if (requested == 0L) {
+        return true;
+      }
+
+      ResponseBody body = this.body;
+      if (body == null) {
+        Response<ResponseBody> response;
+        try {
+          response = call.execute();
+        } catch (IOException | RuntimeException e) {
+          if (!canceled) subscriber.onError(e);
+          return false;
+        }
+        if (!response.isSuccessful()) {
+          subscriber.onError(new HttpException(response));
+          return false;
+        }
+        body = response.body();
+        if (body == null) {
+          // Nothing to stream, as for a 204 or 205 response.
+          subscriber.onComplete();
+          return false;
+        }
+        this.body = body;
+      }
+
+      long emitted = 0L;
+      while (emitted != requested) {
+        if (canceled) {
+          closeBody();
+          return false;
+        }
+        T element;
+        try {
+          element = reader.read(body);
+        } catch (IOException | RuntimeException e) {
+          closeBody();
+          if (!canceled) subscriber.onError(e);
+          return false;
+        }
+        if (element == null) {
+          closeBody();
+          subscriber.onComplete();
+          return false;
+        }
+        subscriber.onNext(element);
+        emitted++;
+      }
+      if (requested != Long.MAX_VALUE) {
+        this.requested.addAndGet(-emitted);
+      }
+      return true;
+    }
+
+    private void closeBody() {
+      ResponseBody body = this.body;
+      if (body != null) {
+        this.body = null;
+        body.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import com.google.common.reflect.TypeToken;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import retrofit2.CallAdapter;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class ReactiveStreamsCallAdapterFactoryTest {
+  private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("/") Publisher<String> body();
+    @GET("/") Publisher<Response<String>> response();
+    @Streaming @GET("/") Publisher<ByteString> chunks();
+    @Streaming @GET("/") Publisher<String> lines();
+  }
+
+  private final CallAdapter.Factory factory = ReactiveStreamsCallAdapterFactory.create();
+  private Retrofit retrofit;
+  private Service service;
+
+  @Before public void setUp() {
+    retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test public void nonPublisherReturnsNull() {
+    assertThat(factory.get(String.class, NO_ANNOTATIONS, retrofit)).isNull();
+  }
+
+  @Test public void rawTypeThrows() {
+    try {
+      factory.get(Publisher.class, NO_ANNOTATIONS, retrofit);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Publisher return type must be parameterized"
+          + " as Publisher<Foo> or Publisher<? extends Foo>");
+    }
+  }
+
+  @Test public void rawResponseTypeThrows() {
+    Type type = new TypeToken<Publisher<Response>>() {}.getType();
+    try {
+      factory.get(type, NO_ANNOTATIONS, retrofit);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage(
+          "Response must be parameterized as Response<Foo> or Response<? extends Foo>");
+    }
+  }
+
+  @Test public void streamingResponseTypeThrows() throws NoSuchMethodException {
+    Type type = new TypeToken<Publisher<Response<String>>>() {}.getType();
+    Annotation[] annotations = Service.class.getMethod("lines").getAnnotations();
+    try {
+      factory.get(type, annotations, retrofit);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("@Streaming Publisher must emit body elements, not Response");
+    }
+  }
+
+  @Test public void responseType() {
+    Type bodyType = new TypeToken<Publisher<String>>() {}.getType();
+    assertThat(factory.get(bodyType, NO_ANNOTATIONS, retrofit).responseType())
+        .isEqualTo(String.class);
+    Type responseType = new TypeToken<Publisher<Response<String>>>() {}.getType();
+    assertThat(factory.get(responseType, NO_ANNOTATIONS, retrofit).responseType())
+        .isEqualTo(String.class);
+  }
+
+  @Test public void bodySentOnFirstRequest() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(0L);
+    service.body().subscribe(subscriber);
+    subscriber.assertNoEvents();
+    assertThat(server.getRequestCount()).isEqualTo(0);
+
+    subscriber.request(1L);
+    assertThat(subscriber.takeValue()).isEqualTo("Hi");
+    subscriber.assertComplete();
+  }
+
+  @Test public void bodyHttpError() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Not Found"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1L);
+    service.body().subscribe(subscriber);
+    Throwable error = subscriber.takeError();
+    assertThat(error).isInstanceOf(HttpException.class).hasMessage("HTTP 404 Client Error");
+  }
+
+  @Test public void responseHttpError() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Not Found"));
+
+    RecordingSubscriber<Response<String>> subscriber = new RecordingSubscriber<>(1L);
+    service.response().subscribe(subscriber);
+    Response<String> response = subscriber.takeValue();
+    assertThat(response.code()).isEqualTo(404);
+    assertThat(response.errorBody().string()).isEqualTo("Not Found");
+    subscriber.assertComplete();
+  }
+
+  @Test public void eachSubscriberSendsRequest() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("One"));
+    server.enqueue(new MockResponse().setBody("Two"));
+
+    Publisher<String> publisher = service.body();
+    RecordingSubscriber<String> first = new RecordingSubscriber<>(1L);
+    publisher.subscribe(first);
+    assertThat(first.takeValue()).isEqualTo("One");
+    first.assertComplete();
+    RecordingSubscriber<String> second = new RecordingSubscriber<>(1L);
+    publisher.subscribe(second);
+    assertThat(second.takeValue()).isEqualTo("Two");
+    second.assertComplete();
+  }
+
+  @Test public void invalidRequestSignalsError() throws InterruptedException {
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(0L);
+    service.body().subscribe(subscriber);
+    subscriber.request(-1L);
+    assertThat(subscriber.takeError()).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("§3.9 violated: positive request amount required but it was -1");
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
+  @Test public void invalidRequestAfterFirstSignalsError() throws InterruptedException {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1L);
+    service.body().subscribe(subscriber);
+    subscriber.request(0L);
+    assertThat(subscriber.takeError()).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("§3.9 violated: positive request amount required but it was 0");
+    // The canceled call does not signal again.
+    subscriber.assertNoEvents();
+  }
+
+  @Test public void chunksHonorDemand() throws InterruptedException {
+    byte[] bytes = new byte[64 * 1024];
+    server.enqueue(new MockResponse().setBody(new Buffer().write(bytes)));
+
+    RecordingSubscriber<ByteString> subscriber = new RecordingSubscriber<>(1L);
+    service.chunks().subscribe(subscriber);
+    ByteString first = subscriber.takeValue();
+    assertThat(first.size()).isBetween(1, (int) ChunkReader.CHUNK_SIZE);
+    subscriber.assertNoEvents();
+
+    subscriber.request(Long.MAX_VALUE);
+    Buffer received = new Buffer().write(first);
+    while (received.size() < bytes.length) {
+      ByteString chunk = subscriber.takeValue();
+      assertThat(chunk.size()).isBetween(1, (int) ChunkReader.CHUNK_SIZE);
+      received.write(chunk);
+    }
+    subscriber.assertComplete();
+    assertThat(received.readByteString()).isEqualTo(ByteString.of(bytes));
+  }
+
+  @Test public void linesHonorDemand() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("one\ntwo\r\n\nthree"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1L);
+    service.lines().subscribe(subscriber);
+    assertThat(subscriber.takeValue()).isEqualTo("one");
+    subscriber.assertNoEvents();
+
+    subscriber.request(2L);
+    assertThat(subscriber.takeValue()).isEqualTo("two");
+    assertThat(subscriber.takeValue()).isEqualTo("three");
+    // Seeing the end of the body needs a read, which waits for demand.
+    subscriber.assertNoEvents();
+
+    subscriber.request(1L);
+    subscriber.assertComplete();
+  }
+
+  @Test public void streamingHttpError() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(404).setBody("Not Found"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1L);
+    service.lines().subscribe(subscriber);
+    Throwable error = subscriber.takeError();
+    assertThat(error).isInstanceOf(HttpException.class).hasMessage("HTTP 404 Client Error");
+  }
+
+  @Test public void streamingSentOnFirstRequest() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("one\n"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(0L);
+    service.lines().subscribe(subscriber);
+    subscriber.assertNoEvents();
+    assertThat(server.getRequestCount()).isEqualTo(0);
+
+    subscriber.request(Long.MAX_VALUE);
+    assertThat(subscriber.takeValue()).isEqualTo("one");
+    subscriber.assertComplete();
+  }
+
+  @Test public void cancelStopsStreaming() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody("one\ntwo\nthree\n"));
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1L);
+    service.lines().subscribe(subscriber);
+    assertThat(subscriber.takeValue()).isEqualTo("one");
+
+    subscriber.cancel();
+    subscriber.request(2L);
+    subscriber.assertNoEvents();
+  }
+
+  @Test public void streamingRejectedExecutionSignalsError() throws InterruptedException {
+    Executor rejecting = new Executor() {
+      @Override public void execute(Runnable command) {
+        throw new RejectedExecutionException("Shut down");
+      }
+    };
+    Service service = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(ReactiveStreamsCallAdapterFactory.create(rejecting))
+        .build()
+        .create(Service.class);
+
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1L);
+    service.lines().subscribe(subscriber);
+    assertThat(subscriber.takeError()).isInstanceOf(RejectedExecutionException.class)
+        .hasMessage("Shut down");
+
+    // The subscription is terminated, so further demand is ignored.
+    subscriber.request(1L);
+    subscriber.assertNoEvents();
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
+  @Test public void streamingInvalidRequestSignalsError() throws InterruptedException {
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(0L);
+    service.lines().subscribe(subscriber);
+    subscriber.request(0L);
+    assertThat(subscriber.takeError()).isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("§3.9 violated: positive request amount required but it was 0");
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+}
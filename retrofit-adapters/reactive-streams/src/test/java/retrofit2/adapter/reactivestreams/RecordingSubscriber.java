@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.reactivestreams;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/** Records the signals to one subscription for tests to await. */
+final class RecordingSubscriber<T> implements Subscriber<T> {
+  private static final Object COMPLETE = new Object() {
+    @Override public String toString() {
+      return "onComplete";
+    }
+  };
+
+  private final long initialRequest;
+  private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+  private volatile Subscription subscription;
+
+  RecordingSubscriber(long initialRequest) {
+    this.initialRequest = initialRequest;
+  }
+
+  @Override public void onSubscribe(Subscription subscription) {
+    this.subscription = subscription;
+    if (initialRequest != 0L) {
+      subscription.request(initialRequest);
+    }
+  }
+
+  @Override public void onNext(T value) {
+    events.add(value);
+  }
+
+  @Override public void onComplete() {
+    events.add(COMPLETE);
+  }
+
+  @Override public void onError(Throwable throwable) {
+    events.add(throwable);
+  }
+
+  void request(long n) {
+    subscription.request(n);
+  }
+
+  void cancel() {
+    subscription.cancel();
+  }
+
+  @SuppressWarnings("unchecked") // Anything but the other signals was passed to onNext.
+  T takeValue() throws InterruptedException {
+    Object event = take();
+    if (event == COMPLETE || event instanceof Throwable) {
+      throw new AssertionError("Expected onNext event but was " + event);
+    }
+    return (T) event;
+  }
+
+  Throwable takeError() throws InterruptedException {
+    Object event = take();
+    if (!(event instanceof Throwable)) {
+      throw new AssertionError("Expected onError event but was " + event);
+    }
+    return (Throwable) event;
+  }
+
+  void assertComplete() throws InterruptedException {
+    Object event = take();
+    if (event != COMPLETE) {
+      throw new AssertionError("Expected onComplete event but was " + event);
+    }
+  }
+
+  void assertNoEvents() throws InterruptedException {
+    Object event = events.poll(100, MILLISECONDS);
+    if (event != null) {
+      throw new AssertionError("Expected no events but was " + event);
+    }
+  }
+
+  private Object take() throws InterruptedException {
+    Object event = events.poll(10, SECONDS);
+    if (event == null) {
+      throw new AssertionError("No event found!");
+    }
+    return event;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which limits the calls in flight to each
+ * endpoint, adapting the limit to the latency and errors it observes.
+ * <p>
+ * While an endpoint responds as quickly as it usually does its limit grows. When it slows down the
+ * limit shrinks in proportion, and failures, {@code 429}, {@code 503} and {@code 504} responses cut
+ * it sharply. Calls beyond the current limit are rejected immediately with a
+ * {@link LimitExceededException} rather than queueing behind a struggling upstream.
+ * <p>
+ * Every method gets a limit keyed by its HTTP method and its URL resolved against the base URL,
+ * such as {@code "GET https://example.com/quotes/{symbol}"}; methods sharing both share a limit,
+ * even across {@link Retrofit} instances. Use {@link #limits()} to observe them.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps.
+ */
+public final class AdaptiveLimitCallAdapterFactory extends CallAdapter.Factory {
+  /** Create an instance with an initial limit of 20 which adapts between 1 and 200. */
+  public static AdaptiveLimitCallAdapterFactory create() {
+    return new Builder().build();
+  }
+
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final ConcurrentMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+  AdaptiveLimitCallAdapterFactory(Builder builder) {
+    this.initialLimit = builder.initialLimit;
+    this.minLimit = builder.minLimit;
+    this.maxLimit = builder.maxLimit;
+  }
+
+  /** Returns a snapshot of the current limit of each endpoint seen so far. */
+  public Map<String, Integer> limits() {
+    Map<String, Integer> result = new LinkedHashMap<>();
+    for (Map.Entry<String, AdaptiveLimiter> entry : limiters.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().limit());
+    }
+    return result;
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    String endpoint = Endpoints.of(annotations);
+    if (endpoint == null) {
+      return null;
+    }
+    endpoint = Endpoints.resolve(endpoint, retrofit.baseUrl());
+
+    AdaptiveLimiter limiter = limiters.get(endpoint);
+    if (limiter == null) {
+      limiter = new AdaptiveLimiter(initialLimit, minLimit, maxLimit);
+      AdaptiveLimiter existing = limiters.putIfAbsent(endpoint, limiter);
+      if (existing != null) limiter = existing;
+    }
+
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    return new AdaptiveLimitCallAdapter<>(delegate, limiter, endpoint);
+  }
+
+  public static final class Builder {
+    int initialLimit = 20;
+    int minLimit = 1;
+    int maxLimit = 200;
+
+    /** The limit each endpoint starts with before any calls have completed. */
+    public Builder initialLimit(int initialLimit) {
+      if (initialLimit < 1) throw new IllegalArgumentException("initialLimit < 1");
+      this.initialLimit = initialLimit;
+      return this;
+    }
+
+    /** The lowest limit an endpoint may shrink to. */
+    public Builder minLimit(int minLimit) {
+      if (minLimit < 1) throw new IllegalArgumentException("minLimit < 1");
+      this.minLimit = minLimit;
+      return this;
+    }
+
+    /** The highest limit an endpoint may grow to. */
+    public Builder maxLimit(int maxLimit) {
+      if (maxLimit < 1) throw new IllegalArgumentException("maxLimit < 1");
+      this.maxLimit = maxLimit;
+      return this;
+    }
+
+    public AdaptiveLimitCallAdapterFactory build() {
+      if (minLimit > maxLimit) {
+        throw new IllegalStateException("minLimit > maxLimit");
+      }
+      if (initialLimit < minLimit || initialLimit > maxLimit) {
+        throw new IllegalStateException("initialLimit must be between minLimit and maxLimit");
+      }
+      return new AdaptiveLimitCallAdapterFactory(this);
+    }
+  }
+
+  private static final class AdaptiveLimitCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final AdaptiveLimiter limiter;
+    private final String endpoint;
+
+    AdaptiveLimitCallAdapter(CallAdapter<R, T> delegate, AdaptiveLimiter limiter,
+        String endpoint) {
+      this.delegate = delegate;
+      this.limiter = limiter;
+      this.endpoint = endpoint;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(new AdaptiveLimitedCall<>(call, limiter, endpoint));
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Admits its delegate only while its {@link AdaptiveLimiter} has room, and reports the delegate's
+ * latency and outcome back to the limiter.
+ */
+final class AdaptiveLimitedCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final AdaptiveLimiter limiter;
+  private final String endpoint;
+
+  // Guarded by this.
+  private boolean executed;
+
+  AdaptiveLimitedCall(Call<T> delegate, AdaptiveLimiter limiter, String endpoint) {
+    this.delegate = delegate;
+    this.limiter = limiter;
+    this.endpoint = endpoint;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    markExecuted();
+    int inFlightBefore = limiter.tryAcquire();
+    if (inFlightBefore == -1) throw new LimitExceededException(endpoint, limiter.limit());
+
+    long startNanos = System.nanoTime();
+    Response<T> response;
+    try {
+      response = delegate.execute();
+    } catch (IOException e) {
+      release(null, startNanos, inFlightBefore);
+      throw e;
+    } catch (RuntimeException | Error e) {
+      limiter.onIgnored();
+      throw e;
+    }
+    release(response, startNanos, inFlightBefore);
+    return response;
+  }
+
+  @Override public void enqueue(final Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    markExecuted();
+    final int inFlightBefore = limiter.tryAcquire();
+    if (inFlightBefore == -1) {
+      callback.onFailure(this, new LimitExceededException(endpoint, limiter.limit()));
+      return;
+    }
+
+    final long startNanos = System.nanoTime();
+    delegate.enqueue(new Callback<T>() {
+      @Override public void onResponse(Call<T> call, Response<T> response) {
+        release(response, startNanos, inFlightBefore);
+        callback.onResponse(AdaptiveLimitedCall.this, response);
+      }
+
+      @Override public void onFailure(Call<T> call, Throwable t) {
+        if (t instanceof IOException) {
+          release(null, startNanos, inFlightBefore);
+        } else {
+          limiter.onIgnored();
+        }
+        callback.onFailure(AdaptiveLimitedCall.this, t);
+      }
+    });
+  }
+
+  /** Releases the permit, classifying a null {@code response} as an I/O failure. */
+  private void release(@Nullable Response<T> response, long startNanos, int inFlightBefore) {
+    if (delegate.isCanceled()) {
+      limiter.onIgnored();
+    } else if (response == null || isOverloaded(response.code())) {
+      limiter.onDropped();
+    } else {
+      limiter.onSuccess(System.nanoTime() - startNanos, inFlightBefore);
+    }
+  }
+
+  static boolean isOverloaded(int code) {
+    return code == 429 || code == 503 || code == 504;
+  }
+
+  private synchronized void markExecuted() {
+    if (executed) throw new IllegalStateException("Already executed.");
+    executed = true;
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    delegate.cancel();
+  }
+
+  @Override public boolean isCanceled() {
+    return delegate.isCanceled();
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new AdaptiveLimitedCall<>(delegate.clone(), limiter, endpoint);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrency limit which adapts to the latency of the calls it admits.
+ * <p>
+ * Each successful call compares a long-term average round trip time with its own. While the
+ * upstream keeps up the ratio is close to one and the limit grows by roughly its square root per
+ * sample. When latency rises the limit shrinks in proportion, and each failure cuts it
+ * multiplicatively. The limit only grows while it is actually being used, so an idle method
+ * cannot build up a limit it never tested.
+ * <p>
+ * All state is held in atomics. Concurrent updates may occasionally overwrite one another, which
+ * only loses a sample.
+ */
+final class AdaptiveLimiter {
+  private static final double SMOOTHING = 0.2;
+  private static final double BACKOFF_RATIO = 0.9;
+  /** Weight of each sample in the long-term average, equivalent to a window of ~100 samples. */
+  private static final double RTT_WEIGHT = 2.0 / (100 + 1);
+
+  private final int minLimit;
+  private final int maxLimit;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  /** The limit as {@code double} bits so that fractional growth accumulates. */
+  private final AtomicLong limit;
+  /** The long-term average round trip time in nanoseconds as {@code double} bits, or 0. */
+  private final AtomicLong averageRtt = new AtomicLong();
+
+  AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+  }
+
+  int limit() {
+    return (int) Double.longBitsToDouble(limit.get());
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Admits a call if fewer than {@link #limit()} are in flight. Returns the number which were in
+   * flight before it, or -1 if it was rejected.
+   */
+  int tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit()) return -1;
+      if (inFlight.compareAndSet(current, current + 1)) return current;
+    }
+  }
+
+  /** Releases a call which completed normally after {@code rttNanos}. */
+  void onSuccess(long rttNanos, int inFlightBefore) {
+    inFlight.decrementAndGet();
+    if (rttNanos <= 0L) return;
+
+    double average = Double.longBitsToDouble(averageRtt.get());
+    average = average == 0 ? rttNanos : average + (rttNanos - average) * RTT_WEIGHT;
+    averageRtt.set(Double.doubleToRawLongBits(average));
+
+    double current = Double.longBitsToDouble(limit.get());
+    double gradient = Math.max(0.5, Math.min(1.0, average / rttNanos));
+    double target = current * gradient + Math.sqrt(current);
+    if (target > current && inFlightBefore + 1 < current / 2) {
+      return; // Don't grow a limit which isn't being used.
+    }
+    update(current, current * (1 - SMOOTHING) + target * SMOOTHING);
+  }
+
+  /** Releases a call which failed in a way that suggests the upstream is overloaded. */
+  void onDropped() {
+    inFlight.decrementAndGet();
+    double current = Double.longBitsToDouble(limit.get());
+    update(current, current * BACKOFF_RATIO);
+  }
+
+  /** Releases a call whose outcome says nothing about the upstream, such as a canceled one. */
+  void onIgnored() {
+    inFlight.decrementAndGet();
+  }
+
+  private void update(double expected, double proposed) {
+    double clamped = Math.max(minLimit, Math.min(maxLimit, proposed));
+    limit.compareAndSet(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(clamped));
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The state of one method's circuit breaker.
+ * <p>
+ * While closed, the outcomes of the most recent calls are kept in a ring buffer. When enough of
+ * them are failures the breaker opens and rejects calls. After a while it half-opens, letting a
+ * few probe calls through: if all succeed it closes, and if any fails it opens again.
+ * <p>
+ * Nothing here takes a lock. Each transition replaces an immutable {@link Phase} by CAS, so the
+ * probe counts and the time the breaker opened change together with the state. Under contention
+ * the window may briefly miss an outcome, which only delays a transition by a call.
+ */
+final class Breaker {
+  static final int CLOSED = 0;
+  static final int OPEN = 1;
+  static final int HALF_OPEN = 2;
+
+  /** Returned by {@link #tryAcquire} for a call which must be rejected. */
+  static final int REJECTED = 0;
+  /** Returned by {@link #tryAcquire} for a call admitted while the breaker is closed. */
+  static final int PERMITTED = 1;
+  /** Returned by {@link #tryAcquire} for a probe call admitted while the breaker is half-open. */
+  static final int PROBE = 2;
+
+  private static final int EMPTY = 0;
+  private static final int SUCCESS = 1;
+  private static final int FAILURE = 2;
+
+  private final double failureRate;
+  private final long slowCallNanos;
+  private final int minimumCalls;
+  private final long openNanos;
+  private final int probes;
+
+  private final AtomicReference<Phase> phase = new AtomicReference<>(new Phase(CLOSED, 0L));
+  private final AtomicIntegerArray window;
+  private final AtomicLong cursor = new AtomicLong();
+
+  Breaker(CircuitBreaker config) {
+    this.failureRate = config.failureRate();
+    this.slowCallNanos = config.slowCallDuration() > 0
+        ? config.unit().toNanos(config.slowCallDuration())
+        : Long.MAX_VALUE;
+    this.minimumCalls = config.minimumCalls();
+    this.openNanos = config.unit().toNanos(config.openDuration());
+    this.probes = config.probes();
+    this.window = new AtomicIntegerArray(config.windowSize());
+  }
+
+  int state() {
+    return phase.get().state;
+  }
+
+  /** Returns {@link #PERMITTED}, {@link #PROBE} or {@link #REJECTED}. */
+  int tryAcquire(long nowNanos) {
+    Phase current = phase.get();
+    if (current.state == CLOSED) return PERMITTED;
+
+    if (current.state == OPEN) {
+      if (nowNanos - current.openedAtNanos < openNanos) return REJECTED;
+      // A fresh phase starts with no probes, so losing threads can't reset the winner's count.
+      Phase halfOpen = new Phase(HALF_OPEN, current.openedAtNanos);
+      current = phase.compareAndSet(current, halfOpen) ? halfOpen : phase.get();
+      if (current.state == CLOSED) return PERMITTED;
+      if (current.state == OPEN) return REJECTED;
+    }
+
+    if (current.probesStarted.incrementAndGet() <= probes) return PROBE;
+    current.probesStarted.decrementAndGet();
+    return REJECTED;
+  }
+
+  /** Records a call admitted with {@code permit} which completed after {@code durationNanos}. */
+  void onResult(int permit, boolean failed, long durationNanos, long nowNanos) {
+    boolean bad = failed || durationNanos > slowCallNanos;
+    Phase current = phase.get();
+    if (permit == PROBE) {
+      if (current.state != HALF_OPEN) return;
+      if (bad) {
+        open(current, nowNanos);
+      } else if (current.probesSucceeded.incrementAndGet() >= probes
+          && phase.compareAndSet(current, new Phase(CLOSED, 0L))) {
+        for (int i = 0, size = window.length(); i < size; i++) {
+          window.set(i, EMPTY);
+        }
+      }
+      return;
+    }
+
+    if (current.state != CLOSED) return; // Admitted before the breaker opened.
+    int size = window.length();
+    window.set((int) (cursor.getAndIncrement() % size), bad ? FAILURE : SUCCESS);
+
+    int calls = 0;
+    int failures = 0;
+    for (int i = 0; i < size; i++) {
+      int outcome = window.get(i);
+      if (outcome != EMPTY) calls++;
+      if (outcome == FAILURE) failures++;
+    }
+    if (calls >= minimumCalls && failures >= failureRate * calls) {
+      open(current, nowNanos);
+    }
+  }
+
+  /** Releases a call admitted with {@code permit} whose outcome says nothing about the upstream. */
+  void onIgnored(int permit) {
+    if (permit != PROBE) return;
+    Phase current = phase.get();
+    if (current.state == HALF_OPEN) current.probesStarted.decrementAndGet();
+  }
+
+  /** Opens the breaker if it is still in {@code expected}. Only the opening thread stamps it. */
+  private void open(Phase expected, long nowNanos) {
+    phase.compareAndSet(expected, new Phase(OPEN, nowNanos));
+  }
+
+  /** One stay in a state. Every transition replaces it, which resets the probe counts. */
+  private static final class Phase {
+    final int state;
+    /** When the breaker last opened. */
+    final long openedAtNanos;
+    final AtomicInteger probesStarted = new AtomicInteger();
+    final AtomicInteger probesSucceeded = new AtomicInteger();
+
+    Phase(int state, long openedAtNanos) {
+      this.state = state;
+      this.openedAtNanos = openedAtNanos;
+    }
+  }
+}
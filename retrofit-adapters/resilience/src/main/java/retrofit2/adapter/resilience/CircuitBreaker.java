@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Stop calling a method whose recent calls have mostly failed or been slow, with
+ * {@link CircuitBreakerCallAdapterFactory}. While the breaker is open calls fail immediately with a
+ * {@link CircuitOpenException}.
+ * <pre><code>
+ * &#64;CircuitBreaker(failureRate = 0.5, slowCallDuration = 2000)
+ * &#64;GET("quotes/{symbol}")
+ * Call&lt;Quote&gt; quote(@Path("symbol") String symbol);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface CircuitBreaker {
+  /** The fraction of failed or slow calls in the window at which the breaker opens. */
+  double failureRate() default 0.5;
+
+  /** Calls which take longer than this count as failures. Zero or less means no limit. */
+  long slowCallDuration() default 0;
+
+  /** How many of the most recent calls make up the window. */
+  int windowSize() default 100;
+
+  /** How many calls the window must hold before the breaker may open. */
+  int minimumCalls() default 20;
+
+  /** How long the breaker stays open before letting probe calls through. */
+  long openDuration() default 30000;
+
+  /** How many probe calls must succeed, with none failing, for the breaker to close again. */
+  int probes() default 3;
+
+  /** The unit of {@link #slowCallDuration()} and {@link #openDuration()}. */
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Rejects calls while its {@link Breaker} is open, without touching the delegate, and reports the
+ * outcome of admitted calls back to the breaker.
+ */
+final class CircuitBreakerCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final Breaker breaker;
+  private final String endpoint;
+
+  // Guarded by this.
+  private boolean executed;
+
+  CircuitBreakerCall(Call<T> delegate, Breaker breaker, String endpoint) {
+    this.delegate = delegate;
+    this.breaker = breaker;
+    this.endpoint = endpoint;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    markExecuted();
+    // Rejecting here means the request is never even created.
+    int permit = breaker.tryAcquire(System.nanoTime());
+    if (permit == Breaker.REJECTED) throw new CircuitOpenException(endpoint);
+
+    long startNanos = System.nanoTime();
+    Response<T> response;
+    try {
+      response = delegate.execute();
+    } catch (IOException e) {
+      release(permit, null, startNanos);
+      throw e;
+    } catch (RuntimeException | Error e) {
+      breaker.onIgnored(permit);
+      throw e;
+    }
+    release(permit, response, startNanos);
+    return response;
+  }
+
+  @Override public void enqueue(final Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    markExecuted();
+    final int permit = breaker.tryAcquire(System.nanoTime());
+    if (permit == Breaker.REJECTED) {
+      callback.onFailure(this, new CircuitOpenException(endpoint));
+      return;
+    }
+
+    final long startNanos = System.nanoTime();
+    delegate.enqueue(new Callback<T>() {
+      @Override public void onResponse(Call<T> call, Response<T> response) {
+        release(permit, response, startNanos);
+        callback.onResponse(CircuitBreakerCall.this, response);
+      }
+
+      @Override public void onFailure(Call<T> call, Throwable t) {
+        if (t instanceof IOException) {
+          release(permit, null, startNanos);
+        } else {
+          breaker.onIgnored(permit);
+        }
+        callback.onFailure(CircuitBreakerCall.this, t);
+      }
+    });
+  }
+
+  /** Records the outcome, classifying a null {@code response} as an I/O failure. */
+  private void release(int permit, @Nullable Response<T> response, long startNanos) {
+    if (delegate.isCanceled()) {
+      breaker.onIgnored(permit);
+      return;
+    }
+    long nowNanos = System.nanoTime();
+    boolean failed = response == null || response.code() >= 500;
+    breaker.onResult(permit, failed, nowNanos - startNanos, nowNanos);
+  }
+
+  private synchronized void markExecuted() {
+    if (executed) throw new IllegalStateException("Already executed.");
+    executed = true;
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    delegate.cancel();
+  }
+
+  @Override public boolean isCanceled() {
+    return delegate.isCanceled();
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new CircuitBreakerCall<>(delegate.clone(), breaker, endpoint);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which gives each
+ * {@link CircuitBreaker @CircuitBreaker} method a circuit breaker.
+ * <p>
+ * I/O failures, {@code 5xx} responses and calls slower than the method's slow call duration count
+ * as failures. Once they make up enough of the recent calls the breaker opens, and calls fail with
+ * {@link CircuitOpenException} before their request is created or sent. After the open duration a
+ * limited number of probe calls are let through to decide whether to close it again.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps.
+ */
+public final class CircuitBreakerCallAdapterFactory extends CallAdapter.Factory {
+  public static CircuitBreakerCallAdapterFactory create() {
+    return new CircuitBreakerCallAdapterFactory();
+  }
+
+  private CircuitBreakerCallAdapterFactory() {
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    CircuitBreaker config = null;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof CircuitBreaker) {
+        config = (CircuitBreaker) annotation;
+        break;
+      }
+    }
+    if (config == null) {
+      return null;
+    }
+    if (config.failureRate() <= 0 || config.failureRate() > 1) {
+      throw new IllegalArgumentException(
+          "@CircuitBreaker failureRate must be greater than 0 and at most 1.");
+    }
+    if (config.windowSize() < 1 || config.minimumCalls() < 1 || config.probes() < 1) {
+      throw new IllegalArgumentException(
+          "@CircuitBreaker windowSize, minimumCalls and probes must be at least 1.");
+    }
+
+    String endpoint = Endpoints.of(annotations);
+    if (endpoint == null) endpoint = returnType.toString();
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    return new CircuitBreakerCallAdapter<>(delegate, new Breaker(config), endpoint);
+  }
+
+  private static final class CircuitBreakerCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final Breaker breaker;
+    private final String endpoint;
+
+    CircuitBreakerCallAdapter(CallAdapter<R, T> delegate, Breaker breaker, String endpoint) {
+      this.delegate = delegate;
+      this.breaker = breaker;
+      this.endpoint = endpoint;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(new CircuitBreakerCall<>(call, breaker, endpoint));
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Annotation;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
+import retrofit2.http.OPTIONS;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/** Names the endpoint a method calls, such as {@code "GET quotes/{symbol}"}. */
+final class Endpoints {
+  /** Returns the endpoint of the method annotated with {@code annotations}, or null. */
+  static @Nullable String of(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof DELETE) {
+        return "DELETE " + ((DELETE) annotation).value();
+      } else if (annotation instanceof GET) {
+        return "GET " + ((GET) annotation).value();
+      } else if (annotation instanceof HEAD) {
+        return "HEAD " + ((HEAD) annotation).value();
+      } else if (annotation instanceof PATCH) {
+        return "PATCH " + ((PATCH) annotation).value();
+      } else if (annotation instanceof POST) {
+        return "POST " + ((POST) annotation).value();
+      } else if (annotation instanceof PUT) {
+        return "PUT " + ((PUT) annotation).value();
+      } else if (annotation instanceof OPTIONS) {
+        return "OPTIONS " + ((OPTIONS) annotation).value();
+      } else if (annotation instanceof HTTP) {
+        HTTP http = (HTTP) annotation;
+        return http.method() + " " + http.path();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns {@code endpoint} with its relative URL resolved against {@code baseUrl}, such as
+   * {@code "GET https://example.com/quotes/{symbol}"}. Path placeholders are kept as written.
+   */
+  static String resolve(String endpoint, HttpUrl baseUrl) {
+    int space = endpoint.indexOf(' ');
+    String method = endpoint.substring(0, space);
+    String path = endpoint.substring(space + 1);
+    if (path.contains("://")) {
+      return endpoint;
+    }
+    if (path.startsWith("/")) {
+      String root = baseUrl.resolve("/").toString();
+      return method + " " + root.substring(0, root.length() - 1) + path;
+    }
+    return method + " " + baseUrl + path;
+  }
+
+  private Endpoints() {
+    throw new AssertionError("No instances.");
+  }
+}
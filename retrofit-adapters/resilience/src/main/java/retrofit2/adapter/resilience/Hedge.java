@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Send a second copy of a slow call and use whichever response arrives first, with
+ * {@link HedgingCallAdapterFactory}. Only idempotent GET and HEAD methods may be hedged.
+ * <pre><code>
+ * &#64;Hedge(delay = 50, unit = MILLISECONDS)
+ * &#64;GET("quotes/{symbol}")
+ * Call&lt;Quote&gt; quote(@Path("symbol") String symbol);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Hedge {
+  /**
+   * How long to wait for the first call before sending the second. Zero or less waits for the
+   * method's observed 95th percentile latency, and does not hedge until enough calls have completed
+   * to know it.
+   */
+  long delay() default 0;
+
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
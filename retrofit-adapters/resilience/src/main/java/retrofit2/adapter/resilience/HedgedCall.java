@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Runs its delegate and, if it has not completed after a delay, a clone of it. The first response
+ * wins and the other attempt is canceled. A failure only wins once no other attempt is running.
+ * Each hedge is withdrawn from a {@link RetryBudget}, which every call pays into.
+ */
+final class HedgedCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final ScheduledExecutorService scheduler;
+  private final long delayNanos;
+  private final LatencyTracker latencies;
+  private final RetryBudget budget;
+
+  // Guarded by this.
+  private boolean executed;
+  private boolean canceled;
+  private boolean done;
+  private int running;
+  private @Nullable Call<T> hedge;
+  private @Nullable ScheduledFuture<?> timer;
+  /** When this call started, which is what a winning attempt's latency is measured from. */
+  private long startNanos;
+
+  HedgedCall(Call<T> delegate, ScheduledExecutorService scheduler, long delayNanos,
+      LatencyTracker latencies, RetryBudget budget) {
+    this.delegate = delegate;
+    this.scheduler = scheduler;
+    this.delayNanos = delayNanos;
+    this.latencies = latencies;
+    this.budget = budget;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    BlockingCallback<T> callback = new BlockingCallback<>();
+    start(callback);
+
+    // The first attempt runs on the calling thread. If the hedge wins it cancels this one.
+    Attempt attempt = new Attempt(delegate, callback);
+    try {
+      attempt.onResponse(delegate, delegate.execute());
+    } catch (Throwable t) {
+      attempt.onFailure(delegate, t);
+    }
+    return callback.await(this);
+  }
+
+  @Override public void enqueue(Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    start(callback);
+    delegate.enqueue(new Attempt(delegate, callback));
+  }
+
+  private void start(final Callback<T> callback) {
+    long delay = delayNanos > 0L ? delayNanos : latencies.percentileNanos();
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+      running = 1;
+      startNanos = System.nanoTime();
+      if (delay >= 0L) {
+        timer = scheduler.schedule(new Runnable() {
+          @Override public void run() {
+            startHedge(callback);
+          }
+        }, delay, TimeUnit.NANOSECONDS);
+      }
+    }
+    budget.deposit();
+  }
+
+  private void startHedge(Callback<T> callback) {
+    Call<T> hedge;
+    synchronized (this) {
+      if (done || canceled || !budget.tryWithdraw()) return;
+      hedge = delegate.clone();
+      this.hedge = hedge;
+      running++;
+    }
+    hedge.enqueue(new Attempt(hedge, callback));
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    ScheduledFuture<?> timer;
+    Call<T> hedge;
+    synchronized (this) {
+      canceled = true;
+      timer = this.timer;
+      hedge = this.hedge;
+    }
+    if (timer != null) timer.cancel(false);
+    delegate.cancel();
+    if (hedge != null) hedge.cancel();
+  }
+
+  @Override public synchronized boolean isCanceled() {
+    return canceled || delegate.isCanceled();
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new HedgedCall<>(delegate.clone(), scheduler, delayNanos, latencies, budget);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+
+  private final class Attempt implements Callback<T> {
+    private final Call<T> call;
+    private final Callback<T> callback;
+
+    Attempt(Call<T> call, Callback<T> callback) {
+      this.call = call;
+      this.callback = callback;
+    }
+
+    @Override public void onResponse(Call<T> ignored, Response<T> response) {
+      Call<T> loser;
+      ScheduledFuture<?> timer;
+      long startNanos;
+      synchronized (HedgedCall.this) {
+        running--;
+        if (done) {
+          closeQuietly(response);
+          return;
+        }
+        done = true;
+        timer = HedgedCall.this.timer;
+        startNanos = HedgedCall.this.startNanos;
+        loser = call == delegate ? hedge : delegate;
+      }
+      if (timer != null) timer.cancel(false);
+      if (loser != null) loser.cancel();
+      if (response.isSuccessful()) {
+        // Measured from the call's start rather than the attempt's, since a winning hedge's own
+        // latency is shorter than the caller waited and would drag the percentile down.
+        latencies.record(System.nanoTime() - startNanos);
+      }
+      callback.onResponse(HedgedCall.this, response);
+    }
+
+    @Override public void onFailure(Call<T> ignored, Throwable t) {
+      ScheduledFuture<?> timer;
+      synchronized (HedgedCall.this) {
+        running--;
+        if (done || running > 0) return; // Another attempt may yet succeed.
+        done = true;
+        timer = HedgedCall.this.timer;
+      }
+      if (timer != null) timer.cancel(false);
+      callback.onFailure(HedgedCall.this, t);
+    }
+  }
+
+  /** Releases a losing response whose body is still open, as streamed bodies are. */
+  private static void closeQuietly(Response<?> response) {
+    Object body = response.body();
+    ResponseBody errorBody = response.errorBody();
+    try {
+      if (body instanceof Closeable) ((Closeable) body).close();
+      if (errorBody != null) errorBody.close();
+    } catch (IOException ignored) {
+    }
+  }
+
+  private static final class BlockingCallback<T> implements Callback<T> {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile @Nullable Response<T> response;
+    private volatile @Nullable Throwable failure;
+
+    @Override public void onResponse(Call<T> call, Response<T> response) {
+      this.response = response;
+      latch.countDown();
+    }
+
+    @Override public void onFailure(Call<T> call, Throwable t) {
+      this.failure = t;
+      latch.countDown();
+    }
+
+    Response<T> await(Call<T> call) throws IOException {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        call.cancel();
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      Throwable failure = this.failure;
+      if (failure == null) return response;
+      if (failure instanceof IOException) throw (IOException) failure;
+      if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+      if (failure instanceof Error) throw (Error) failure;
+      throw new RuntimeException(failure);
+    }
+  }
+}
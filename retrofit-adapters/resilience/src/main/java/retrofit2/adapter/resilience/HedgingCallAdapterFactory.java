@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which hedges {@link Hedge @Hedge} methods: when
+ * a call is slower than the method's configured delay or observed 95th percentile latency, a
+ * {@linkplain Call#clone() clone} is sent alongside it and whichever responds first is used. The
+ * other is canceled.
+ * <p>
+ * Hedging trades a few percent of extra requests for a much shorter latency tail when a minority of
+ * upstream instances are slow. Since the same request may reach the server twice, only GET and
+ * HEAD methods may be hedged.
+ * <p>
+ * Hedges are capped by a budget shared by every method of this factory: each call earns a fraction
+ * of a hedge, 10% by default, so that a slow upstream doesn't receive ever more hedges.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps.
+ */
+public final class HedgingCallAdapterFactory extends CallAdapter.Factory {
+  /** Create an instance with a 10% hedge budget which sends hedges from a shared thread. */
+  public static HedgingCallAdapterFactory create() {
+    return new Builder().build();
+  }
+
+  /** Create an instance with a 10% hedge budget which sends hedges from {@code scheduler}. */
+  public static HedgingCallAdapterFactory create(ScheduledExecutorService scheduler) {
+    return new Builder().scheduler(scheduler).build();
+  }
+
+  private final ScheduledExecutorService scheduler;
+  private final RetryBudget budget;
+
+  HedgingCallAdapterFactory(Builder builder) {
+    this.scheduler = builder.scheduler;
+    this.budget = new RetryBudget(builder.budgetRatio);
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Hedge hedge = null;
+    boolean idempotent = false;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Hedge) {
+        hedge = (Hedge) annotation;
+      } else if (annotation instanceof GET || annotation instanceof HEAD) {
+        idempotent = true;
+      } else if (annotation instanceof HTTP) {
+        String method = ((HTTP) annotation).method();
+        idempotent = "GET".equals(method) || "HEAD".equals(method);
+      }
+    }
+    if (hedge == null) {
+      return null;
+    }
+    if (!idempotent) {
+      throw new IllegalArgumentException("@Hedge can only be used on GET and HEAD methods.");
+    }
+
+    long delayNanos = hedge.delay() > 0 ? hedge.unit().toNanos(hedge.delay()) : -1L;
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    return new HedgingCallAdapter<>(delegate, scheduler, delayNanos, budget);
+  }
+
+  public static final class Builder {
+    ScheduledExecutorService scheduler = DefaultScheduler.INSTANCE;
+    double budgetRatio = 0.1;
+
+    /** Send hedges from {@code scheduler}. */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder scheduler(ScheduledExecutorService scheduler) {
+      if (scheduler == null) throw new NullPointerException("scheduler == null");
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * The number of hedges each call earns. A ratio of 0.1 allows hedges to add at most 10% to the
+     * calls made, plus a small reserve for when traffic is light.
+     */
+    public Builder budgetRatio(double budgetRatio) {
+      if (budgetRatio < 0 || budgetRatio > 1) {
+        throw new IllegalArgumentException("budgetRatio must be between 0 and 1: " + budgetRatio);
+      }
+      this.budgetRatio = budgetRatio;
+      return this;
+    }
+
+    public HedgingCallAdapterFactory build() {
+      return new HedgingCallAdapterFactory(this);
+    }
+  }
+
+  private static final class HedgingCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final ScheduledExecutorService scheduler;
+    private final long delayNanos;
+    private final RetryBudget budget;
+    private final LatencyTracker latencies = new LatencyTracker(0.95);
+
+    HedgingCallAdapter(CallAdapter<R, T> delegate, ScheduledExecutorService scheduler,
+        long delayNanos, RetryBudget budget) {
+      this.delegate = delegate;
+      this.scheduler = scheduler;
+      this.delayNanos = delayNanos;
+      this.budget = budget;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(new HedgedCall<>(call, scheduler, delayNanos, latencies, budget));
+    }
+  }
+}
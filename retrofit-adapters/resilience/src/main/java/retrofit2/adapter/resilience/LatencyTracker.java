@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.util.Arrays;
+
+/** Tracks a percentile of a method's most recent successful call latencies. */
+final class LatencyTracker {
+  static final int CAPACITY = 128;
+  static final int MIN_SAMPLES = 20;
+  /** Re-sort the samples only every few records, since a percentile drifts slowly. */
+  private static final int RECOMPUTE_INTERVAL = 8;
+
+  private final double percentile;
+
+  // Guarded by this.
+  private final long[] samples = new long[CAPACITY];
+  private int count;
+  private int next;
+
+  private volatile long percentileNanos = -1L;
+
+  LatencyTracker(double percentile) {
+    this.percentile = percentile;
+  }
+
+  /** Returns the tracked percentile in nanoseconds, or -1 if too few calls have completed. */
+  long percentileNanos() {
+    return percentileNanos;
+  }
+
+  synchronized void record(long nanos) {
+    samples[next] = nanos;
+    next = (next + 1) % CAPACITY;
+    if (count < CAPACITY) count++;
+
+    if (count >= MIN_SAMPLES && (count < CAPACITY || next % RECOMPUTE_INTERVAL == 0)) {
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      percentileNanos = sorted[(int) Math.ceil(percentile * count) - 1];
+    }
+  }
+}
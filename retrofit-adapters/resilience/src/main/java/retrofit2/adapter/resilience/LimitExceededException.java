@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+
+/**
+ * Thrown, or delivered to {@link retrofit2.Callback#onFailure}, when a call is rejected because
+ * its method already has as many calls in flight as its current concurrency limit allows.
+ */
+public final class LimitExceededException extends IOException {
+  private final int limit;
+
+  LimitExceededException(String endpoint, int limit) {
+    super("Concurrency limit of " + limit + " reached for " + endpoint);
+    this.limit = limit;
+  }
+
+  /** The concurrency limit in effect when the call was rejected. */
+  public int limit() {
+    return limit;
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Grants permits to waiters in arrival order, subject to a concurrency limit and a token bucket.
+ * Waiters are never blocked on: they are notified when granted, either by the thread which freed
+ * capacity or by the scheduler once the bucket has refilled. Only one thread notifies at a time,
+ * and a waiter which throws does not keep the others from being notified.
+ */
+final class Limiter {
+  interface Waiter {
+    /** Called once a permit is held. The permit must later be {@linkplain #release released}. */
+    void granted();
+  }
+
+  private final int maxConcurrent;
+  private final double permitsPerNano;
+  private final double burst;
+  private final ScheduledExecutorService scheduler;
+  private final Runnable drainTask = new Runnable() {
+    @Override public void run() {
+      boolean notify;
+      synchronized (Limiter.this) {
+        drainScheduled = false;
+        notify = drain();
+      }
+      if (notify) notifyGranted();
+    }
+  };
+
+  // Guarded by this.
+  private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+  /** Waiters which hold a permit but have not been notified yet. */
+  private final ArrayDeque<Waiter> granted = new ArrayDeque<>();
+  private boolean notifying;
+  private int inFlight;
+  private double tokens;
+  private long refilledAtNanos;
+  private boolean drainScheduled;
+
+  Limiter(int maxConcurrent, double permitsPerSecond, int burst,
+      ScheduledExecutorService scheduler) {
+    this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : Integer.MAX_VALUE;
+    this.permitsPerNano = permitsPerSecond > 0 ? permitsPerSecond / 1e9 : 0;
+    this.burst = Math.max(1, burst);
+    this.scheduler = scheduler;
+    this.tokens = this.burst;
+    this.refilledAtNanos = System.nanoTime();
+  }
+
+  /** Queues {@code waiter}, granting it a permit immediately if one is available. */
+  void acquire(Waiter waiter) {
+    boolean notify;
+    synchronized (this) {
+      waiters.add(waiter);
+      notify = drain();
+    }
+    if (notify) notifyGranted();
+  }
+
+  /** Removes {@code waiter} if it has not been granted a permit yet. */
+  synchronized boolean remove(Waiter waiter) {
+    return waiters.remove(waiter);
+  }
+
+  void release() {
+    boolean notify;
+    synchronized (this) {
+      inFlight--;
+      notify = drain();
+    }
+    if (notify) notifyGranted();
+  }
+
+  /**
+   * Grants permits to as many waiters as the limits allow. Returns true if the caller must notify
+   * them, which is the case unless there are none or another thread is already notifying.
+   */
+  private boolean drain() {
+    while (!waiters.isEmpty() && inFlight < maxConcurrent) {
+      if (permitsPerNano > 0) {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAtNanos) * permitsPerNano);
+        refilledAtNanos = now;
+        if (tokens < 1) {
+          if (!drainScheduled) {
+            drainScheduled = true;
+            long delayNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+            scheduler.schedule(drainTask, delayNanos, NANOSECONDS);
+          }
+          break;
+        }
+        tokens -= 1;
+      }
+      inFlight++;
+      granted.add(waiters.poll());
+    }
+    if (notifying || granted.isEmpty()) return false;
+    notifying = true;
+    return true;
+  }
+
+  /**
+   * Notifies granted waiters one at a time until there are none left. A waiter which releases its
+   * permit while being notified, such as a call which fails synchronously, only queues the next
+   * grant here rather than recursing, so a long queue cannot overflow the stack.
+   */
+  private void notifyGranted() {
+    while (true) {
+      Waiter waiter;
+      synchronized (this) {
+        waiter = granted.poll();
+        if (waiter == null) {
+          notifying = false;
+          return;
+        }
+      }
+      try {
+        waiter.granted();
+      } catch (Throwable t) {
+        // Keep notifying the others. The waiter is responsible for its own permit.
+        t.printStackTrace();
+      }
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Retry failed calls to a method with exponential backoff, with {@link RetryingCallAdapterFactory}.
+ * I/O failures and {@code 408}, {@code 429}, {@code 502}, {@code 503} and {@code 504} responses are
+ * retried.
+ * <pre><code>
+ * &#64;Retry(maxAttempts = 4, initialDelay = 200)
+ * &#64;GET("quotes/{symbol}")
+ * Call&lt;Quote&gt; quote(@Path("symbol") String symbol);
+ * </code></pre>
+ * Retrying a method which is not idempotent may repeat its effects on the server.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Retry {
+  /** The most times the call may be sent, including the first. */
+  int maxAttempts() default 3;
+
+  /**
+   * The delay before the first retry. Each following retry waits twice as long as the last, with
+   * up to half of each delay randomized so that clients don't retry in lockstep.
+   */
+  long initialDelay() default 100;
+
+  /**
+   * The longest delay between attempts. A {@code Retry-After} header asking for a longer delay
+   * ends the retries.
+   */
+  long maxDelay() default 10000;
+
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits retries to a fraction of calls. Each call deposits {@code ratio} of a retry and each retry
+ * withdraws one, so that when an upstream fails outright retries add at most that fraction to its
+ * load instead of multiplying it. Hedges are budgeted the same way.
+ */
+final class RetryBudget {
+  /** Balances are held in thousandths of a retry so that they can be updated atomically. */
+  private static final long SCALE = 1000L;
+  /** The most retries which may be saved up, which is also the initial balance. */
+  static final int MAX_BALANCE = 10;
+
+  private final long deposit;
+  private final AtomicLong balance = new AtomicLong(MAX_BALANCE * SCALE);
+
+  RetryBudget(double ratio) {
+    this.deposit = (long) (ratio * SCALE);
+  }
+
+  void deposit() {
+    while (true) {
+      long current = balance.get();
+      long updated = Math.min(MAX_BALANCE * SCALE, current + deposit);
+      if (updated == current || balance.compareAndSet(current, updated)) return;
+    }
+  }
+
+  boolean tryWithdraw() {
+    while (true) {
+      long current = balance.get();
+      if (current < SCALE) return false;
+      if (balance.compareAndSet(current, current - SCALE)) return true;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Headers;
+
+/** The backoff schedule of a {@link Retry @Retry} method. */
+final class RetryPolicy {
+  final int maxAttempts;
+  private final long initialDelayNanos;
+  private final long maxDelayNanos;
+
+  RetryPolicy(Retry retry) {
+    this.maxAttempts = retry.maxAttempts();
+    this.initialDelayNanos = retry.unit().toNanos(retry.initialDelay());
+    this.maxDelayNanos = retry.unit().toNanos(retry.maxDelay());
+  }
+
+  static boolean isRetryable(int code) {
+    return code == 408 || code == 429 || code == 502 || code == 503 || code == 504;
+  }
+
+  /** Returns the delay before the attempt following {@code attempt}, which counts from 1. */
+  long backoffNanos(int attempt) {
+    long delay = Math.min(initialDelayNanos, maxDelayNanos);
+    for (int i = 1; i < attempt; i++) {
+      delay = delay > maxDelayNanos / 2 ? maxDelayNanos : delay * 2;
+    }
+    return delay - (long) (Math.random() * (delay / 2));
+  }
+
+  /**
+   * Returns the delay a response's {@code Retry-After} header asks for, -1 if it has none, or
+   * {@link Long#MAX_VALUE} if it asks for longer than this policy will wait.
+   */
+  long retryAfterNanos(Headers headers, long nowMillis) {
+    String value = headers.get("Retry-After");
+    if (value == null) return -1L;
+
+    long delayNanos;
+    try {
+      delayNanos = TimeUnit.SECONDS.toNanos(Math.max(0L, Long.parseLong(value.trim())));
+    } catch (NumberFormatException e) {
+      Date date = headers.getDate("Retry-After");
+      if (date == null) return -1L;
+      delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, date.getTime() - nowMillis));
+    }
+    return delayNanos <= maxDelayNanos ? delayNanos : Long.MAX_VALUE;
+  }
+}
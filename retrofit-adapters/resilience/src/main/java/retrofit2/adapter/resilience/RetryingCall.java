@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs its delegate, then {@linkplain Call#clone() clones} of it after each retryable failure,
+ * until one succeeds or its {@link RetryPolicy} or {@link RetryBudget} is exhausted.
+ */
+final class RetryingCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final RetryPolicy policy;
+  private final RetryBudget budget;
+  private final ScheduledExecutorService scheduler;
+  /** Wakes a blocked {@link #execute()} waiting between attempts. */
+  private final CountDownLatch canceledLatch = new CountDownLatch(1);
+
+  // Guarded by this.
+  private boolean executed;
+  private boolean canceled;
+  private Call<T> current;
+  private @Nullable ScheduledFuture<?> timer;
+  private @Nullable Callback<T> waitingCallback;
+
+  RetryingCall(Call<T> delegate, RetryPolicy policy, RetryBudget budget,
+      ScheduledExecutorService scheduler) {
+    this.delegate = delegate;
+    this.policy = policy;
+    this.budget = budget;
+    this.scheduler = scheduler;
+    this.current = delegate;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    start();
+    Call<T> call = delegate;
+    for (int attempt = 1; ; attempt++) {
+      Response<T> response = null;
+      IOException failure = null;
+      try {
+        response = call.execute();
+      } catch (IOException e) {
+        failure = e;
+      }
+
+      long delayNanos = retryDelayNanos(attempt, response, failure);
+      if (delayNanos < 0L) {
+        if (failure != null) throw failure;
+        return response;
+      }
+      if (response != null) closeErrorBody(response);
+
+      // Unlike enqueue(), execute() has to hold its calling thread for the delay.
+      try {
+        if (canceledLatch.await(delayNanos, NANOSECONDS)) throw new IOException("Canceled");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      call = next();
+    }
+  }
+
+  @Override public void enqueue(Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    start();
+    attempt(1, delegate, callback);
+  }
+
+  private void start() {
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+    }
+    budget.deposit();
+  }
+
+  private void attempt(final int attempt, Call<T> call, final Callback<T> callback) {
+    call.enqueue(new Callback<T>() {
+      @Override public void onResponse(Call<T> call, Response<T> response) {
+        long delayNanos = retryDelayNanos(attempt, response, null);
+        if (delayNanos < 0L) {
+          callback.onResponse(RetryingCall.this, response);
+        } else {
+          closeErrorBody(response);
+          schedule(attempt + 1, callback, delayNanos);
+        }
+      }
+
+      @Override public void onFailure(Call<T> call, Throwable t) {
+        long delayNanos = retryDelayNanos(attempt, null, t);
+        if (delayNanos < 0L) {
+          callback.onFailure(RetryingCall.this, t);
+        } else {
+          schedule(attempt + 1, callback, delayNanos);
+        }
+      }
+    });
+  }
+
+  private void schedule(final int attempt, final Callback<T> callback, long delayNanos) {
+    synchronized (this) {
+      if (!canceled) {
+        waitingCallback = callback;
+        timer = scheduler.schedule(new Runnable() {
+          @Override public void run() {
+            Call<T> call;
+            try {
+              call = next();
+            } catch (IOException e) {
+              callback.onFailure(RetryingCall.this, e);
+              return;
+            }
+            attempt(attempt, call, callback);
+          }
+        }, delayNanos, NANOSECONDS);
+        return;
+      }
+    }
+    callback.onFailure(this, new IOException("Canceled"));
+  }
+
+  /** Returns a fresh attempt, or throws if this call was canceled while waiting for it. */
+  private synchronized Call<T> next() throws IOException {
+    if (canceled) throw new IOException("Canceled");
+    waitingCallback = null;
+    current = delegate.clone();
+    return current;
+  }
+
+  /**
+   * Returns how long to wait before retrying an attempt which produced {@code response} or
+   * {@code failure}, or -1 if its outcome should be delivered instead.
+   */
+  private long retryDelayNanos(int attempt, @Nullable Response<T> response,
+      @Nullable Throwable failure) {
+    if (attempt >= policy.maxAttempts || isCanceled()) return -1L;
+
+    long delayNanos;
+    if (response != null) {
+      if (!RetryPolicy.isRetryable(response.code())) return -1L;
+      delayNanos = policy.retryAfterNanos(response.headers(), System.currentTimeMillis());
+      if (delayNanos == Long.MAX_VALUE) return -1L;
+      if (delayNanos < 0L) delayNanos = policy.backoffNanos(attempt);
+    } else if (failure instanceof IOException) {
+      delayNanos = policy.backoffNanos(attempt);
+    } else {
+      return -1L;
+    }
+    return budget.tryWithdraw() ? delayNanos : -1L;
+  }
+
+  private static void closeErrorBody(Response<?> response) {
+    ResponseBody errorBody = response.errorBody();
+    if (errorBody != null) errorBody.close();
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    Call<T> current;
+    ScheduledFuture<?> timer;
+    Callback<T> waitingCallback;
+    synchronized (this) {
+      canceled = true;
+      current = this.current;
+      timer = this.timer;
+      waitingCallback = this.waitingCallback;
+      this.waitingCallback = null;
+    }
+    canceledLatch.countDown();
+    current.cancel();
+    if (timer != null && timer.cancel(false) && waitingCallback != null) {
+      waitingCallback.onFailure(this, new IOException("Canceled"));
+    }
+  }
+
+  @Override public synchronized boolean isCanceled() {
+    return canceled || current.isCanceled();
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new RetryingCall<>(delegate.clone(), policy, budget, scheduler);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which retries {@link Retry @Retry} methods with
+ * exponential backoff and jitter, honoring {@code Retry-After} response headers.
+ * <p>
+ * Retries are capped by a budget shared by every method of this factory: each call earns a fraction
+ * of a retry, 10% by default, so that an outage can't turn retries into a multiple of the normal
+ * load. Delays between attempts of {@link Call#enqueue enqueued} calls are scheduled rather than
+ * holding a thread.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps.
+ */
+public final class RetryingCallAdapterFactory extends CallAdapter.Factory {
+  /** Create an instance with a 10% retry budget which schedules retries on a shared thread. */
+  public static RetryingCallAdapterFactory create() {
+    return new Builder().build();
+  }
+
+  private final ScheduledExecutorService scheduler;
+  private final RetryBudget budget;
+
+  RetryingCallAdapterFactory(Builder builder) {
+    this.scheduler = builder.scheduler;
+    this.budget = new RetryBudget(builder.budgetRatio);
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Retry retry = null;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Retry) {
+        retry = (Retry) annotation;
+        break;
+      }
+    }
+    if (retry == null) {
+      return null;
+    }
+    if (retry.maxAttempts() < 1) {
+      throw new IllegalArgumentException("@Retry maxAttempts must be at least 1.");
+    }
+    if (retry.initialDelay() < 0 || retry.maxDelay() < 0) {
+      throw new IllegalArgumentException("@Retry delays must not be negative.");
+    }
+
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    return new RetryingCallAdapter<>(delegate, new RetryPolicy(retry), budget, scheduler);
+  }
+
+  public static final class Builder {
+    ScheduledExecutorService scheduler = DefaultScheduler.INSTANCE;
+    double budgetRatio = 0.1;
+
+    /** Schedule the delays between attempts on {@code scheduler}. */
+    @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+    public Builder scheduler(ScheduledExecutorService scheduler) {
+      if (scheduler == null) throw new NullPointerException("scheduler == null");
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * The number of retries each call earns. A ratio of 0.1 allows retries to add at most 10% to
+     * the calls made, plus a small reserve for when traffic is light.
+     */
+    public Builder budgetRatio(double budgetRatio) {
+      if (budgetRatio < 0 || budgetRatio > 1) {
+        throw new IllegalArgumentException("budgetRatio must be between 0 and 1: " + budgetRatio);
+      }
+      this.budgetRatio = budgetRatio;
+      return this;
+    }
+
+    public RetryingCallAdapterFactory build() {
+      return new RetryingCallAdapterFactory(this);
+    }
+  }
+
+  private static final class RetryingCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final RetryPolicy policy;
+    private final RetryBudget budget;
+    private final ScheduledExecutorService scheduler;
+
+    RetryingCallAdapter(CallAdapter<R, T> delegate, RetryPolicy policy, RetryBudget budget,
+        ScheduledExecutorService scheduler) {
+      this.delegate = delegate;
+      this.policy = policy;
+      this.budget = budget;
+      this.scheduler = scheduler;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(new RetryingCall<>(call, policy, budget, scheduler));
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Limit how many calls to a method may be in flight at once and how often they may start, with
+ * {@link ThrottlingCallAdapterFactory}.
+ * <pre><code>
+ * &#64;Throttle(maxConcurrent = 4, permitsPerSecond = 10)
+ * &#64;GET("quotes/{symbol}")
+ * Call&lt;Quote&gt; quote(@Path("symbol") String symbol);
+ * </code></pre>
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Throttle {
+  /** The most calls which may be in flight at once. Zero or less means no limit. */
+  int maxConcurrent() default 0;
+
+  /** The steady rate at which calls may start. Zero or less means no limit. */
+  double permitsPerSecond() default 0;
+
+  /** How many calls may start back to back after the method has been idle. */
+  int burst() default 1;
+
+  /**
+   * Methods with the same non-empty group share one set of limits, which each of them must declare
+   * identically. By default each method has its own.
+   */
+  String group() default "";
+}
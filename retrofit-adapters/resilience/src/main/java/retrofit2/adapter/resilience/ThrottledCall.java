@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/** Waits for a {@link Limiter} permit before running its delegate, and returns it afterwards. */
+final class ThrottledCall<T> implements Call<T> {
+  private final Call<T> delegate;
+  private final Limiter limiter;
+
+  // Guarded by this.
+  private boolean executed;
+  private boolean canceled;
+  private @Nullable Grant grant;
+
+  ThrottledCall(Call<T> delegate, Limiter limiter) {
+    this.delegate = delegate;
+    this.limiter = limiter;
+  }
+
+  @Override public Response<T> execute() throws IOException {
+    BlockingGrant grant = new BlockingGrant();
+    start(grant);
+
+    try {
+      grant.latch.await();
+    } catch (InterruptedException e) {
+      if (!limiter.remove(grant)) {
+        limiter.release(); // Granted while we were being interrupted.
+      }
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    if (grant.canceled) throw new IOException("Canceled");
+
+    try {
+      return delegate.execute();
+    } finally {
+      limiter.release();
+    }
+  }
+
+  @Override public void enqueue(final Callback<T> callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    start(new AsyncGrant(callback));
+  }
+
+  private void start(Grant grant) {
+    synchronized (this) {
+      if (executed) throw new IllegalStateException("Already executed.");
+      executed = true;
+      this.grant = grant;
+    }
+    limiter.acquire(grant);
+  }
+
+  @Override public synchronized boolean isExecuted() {
+    return executed;
+  }
+
+  @Override public void cancel() {
+    Grant grant;
+    synchronized (this) {
+      canceled = true;
+      grant = this.grant;
+    }
+    if (grant != null && limiter.remove(grant)) {
+      grant.canceled();
+    }
+    delegate.cancel();
+  }
+
+  @Override public synchronized boolean isCanceled() {
+    return canceled || delegate.isCanceled();
+  }
+
+  @SuppressWarnings("CloneDoesntCallSuperClone") // Performing deep clone.
+  @Override public Call<T> clone() {
+    return new ThrottledCall<>(delegate.clone(), limiter);
+  }
+
+  @Override public Request request() {
+    return delegate.request();
+  }
+
+  private abstract static class Grant implements Limiter.Waiter {
+    /** Called instead of {@link #granted()} if the call is canceled while waiting. */
+    abstract void canceled();
+  }
+
+  private static final class BlockingGrant extends Grant {
+    final CountDownLatch latch = new CountDownLatch(1);
+    volatile boolean canceled;
+
+    @Override public void granted() {
+      latch.countDown();
+    }
+
+    @Override void canceled() {
+      canceled = true;
+      latch.countDown();
+    }
+  }
+
+  private final class AsyncGrant extends Grant {
+    private final Callback<T> callback;
+
+    AsyncGrant(Callback<T> callback) {
+      this.callback = callback;
+    }
+
+    @Override public void granted() {
+      // Releases the permit and delivers the outcome exactly once, even if enqueue throws after
+      // reporting a failure synchronously.
+      final AtomicBoolean done = new AtomicBoolean();
+      try {
+        delegate.enqueue(new Callback<T>() {
+          @Override public void onResponse(Call<T> call, Response<T> response) {
+            if (!done.compareAndSet(false, true)) return;
+            limiter.release();
+            callback.onResponse(ThrottledCall.this, response);
+          }
+
+          @Override public void onFailure(Call<T> call, Throwable t) {
+            if (!done.compareAndSet(false, true)) return;
+            limiter.release();
+            callback.onFailure(ThrottledCall.this, t);
+          }
+        });
+      } catch (Throwable t) {
+        if (!done.compareAndSet(false, true)) throw t;
+        limiter.release();
+        callback.onFailure(ThrottledCall.this, t);
+      }
+    }
+
+    @Override void canceled() {
+      callback.onFailure(ThrottledCall.this, new IOException("Canceled"));
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain CallAdapter.Factory call adapter} which enforces the concurrency and rate limits
+ * of {@link Throttle @Throttle} methods, independently of OkHttp's client-wide dispatcher limits.
+ * <p>
+ * Calls which exceed a limit wait in arrival order. A waiting {@link Call#execute()} blocks its
+ * caller; a waiting {@link Call#enqueue} holds no thread at all, so OkHttp's dispatcher threads are
+ * never blocked. Canceling a waiting call removes it from the queue.
+ * <p>
+ * This factory delegates to the next factory for the actual return type and so must be added
+ * before the factories it wraps.
+ */
+public final class ThrottlingCallAdapterFactory extends CallAdapter.Factory {
+  /** Create an instance which waits for rate limits on a shared daemon thread. */
+  public static ThrottlingCallAdapterFactory create() {
+    return new ThrottlingCallAdapterFactory(DefaultScheduler.INSTANCE);
+  }
+
+  /** Create an instance which waits for rate limits on {@code scheduler}. */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static ThrottlingCallAdapterFactory create(ScheduledExecutorService scheduler) {
+    if (scheduler == null) throw new NullPointerException("scheduler == null");
+    return new ThrottlingCallAdapterFactory(scheduler);
+  }
+
+  private final ScheduledExecutorService scheduler;
+  private final ConcurrentMap<String, Group> groups = new ConcurrentHashMap<>();
+
+  private ThrottlingCallAdapterFactory(ScheduledExecutorService scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  @Override public @Nullable CallAdapter<?, ?> get(
+      Type returnType, Annotation[] annotations, Retrofit retrofit) {
+    Throttle throttle = null;
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Throttle) {
+        throttle = (Throttle) annotation;
+        break;
+      }
+    }
+    if (throttle == null) {
+      return null;
+    }
+
+    Limiter limiter = new Limiter(throttle.maxConcurrent(), throttle.permitsPerSecond(),
+        throttle.burst(), scheduler);
+    if (!throttle.group().isEmpty()) {
+      Group existing = groups.putIfAbsent(throttle.group(), new Group(throttle, limiter));
+      if (existing != null) {
+        // Annotations are equal when all of their values are.
+        if (!existing.throttle.equals(throttle)) {
+          throw new IllegalArgumentException("@Throttle group \""
+              + throttle.group()
+              + "\" is declared with different limits on different methods.");
+        }
+        limiter = existing.limiter;
+      }
+    }
+
+    CallAdapter<?, ?> delegate = retrofit.nextCallAdapter(this, returnType, annotations);
+    return new ThrottlingCallAdapter<>(delegate, limiter);
+  }
+
+  /** The limiter shared by a group, and the limits it was declared with. */
+  private static final class Group {
+    final Throttle throttle;
+    final Limiter limiter;
+
+    Group(Throttle throttle, Limiter limiter) {
+      this.throttle = throttle;
+      this.limiter = limiter;
+    }
+  }
+
+  private static final class ThrottlingCallAdapter<R, T> implements CallAdapter<R, T> {
+    private final CallAdapter<R, T> delegate;
+    private final Limiter limiter;
+
+    ThrottlingCallAdapter(CallAdapter<R, T> delegate, Limiter limiter) {
+      this.delegate = delegate;
+      this.limiter = limiter;
+    }
+
+    @Override public Type responseType() {
+      return delegate.responseType();
+    }
+
+    @Override public T adapt(Call<R> call) {
+      return delegate.adapt(new ThrottledCall<>(call, limiter));
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static retrofit2.adapter.resilience.RecordingCallback.enqueue;
+
+public final class AdaptiveLimitCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @GET("a") Call<String> a();
+    @GET("a") Call<String> alsoA();
+    @POST("b") Call<String> b();
+  }
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private AdaptiveLimitCallAdapterFactory factory;
+  private Service service;
+
+  @Before public void setUp() {
+    factory = new AdaptiveLimitCallAdapterFactory.Builder()
+        .initialLimit(2)
+        .maxLimit(2)
+        .build();
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @After public void tearDown() {
+    release.countDown();
+  }
+
+  @Test public void rejectsCallsBeyondLimit() throws InterruptedException {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        release.await();
+        return new MockResponse().setBody("Hi");
+      }
+    });
+
+    RecordingCallback<String> first = enqueue(service.a());
+    RecordingCallback<String> second = enqueue(service.alsoA());
+    Throwable failure = enqueue(service.a()).awaitFailure();
+    assertThat(failure).isInstanceOf(LimitExceededException.class)
+        .hasMessage("Concurrency limit of 2 reached for GET " + server.url("/a"));
+    assertThat(((LimitExceededException) failure).limit()).isEqualTo(2);
+
+    // Other endpoints have their own limit.
+    RecordingCallback<String> other = enqueue(service.b());
+
+    release.countDown();
+    assertThat(first.awaitResponse().body()).isEqualTo("Hi");
+    assertThat(second.awaitResponse().body()).isEqualTo("Hi");
+    assertThat(other.awaitResponse().body()).isEqualTo("Hi");
+  }
+
+  @Test public void overloadedResponsesShrinkLimit() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(429));
+    server.enqueue(new MockResponse().setResponseCode(404));
+
+    Response<String> response = service.a().execute();
+    assertThat(response.code()).isEqualTo(503);
+    assertThat(factory.limits()).containsEntry("GET " + server.url("/a"), 1);
+
+    assertThat(service.a().execute().code()).isEqualTo(429);
+    assertThat(factory.limits()).containsEntry("GET " + server.url("/a"), 1);
+
+    // Client errors say nothing about the upstream's load.
+    assertThat(service.b().execute().code()).isEqualTo(404);
+    assertThat(factory.limits()).containsEntry("POST " + server.url("/b"), 2);
+  }
+
+  @Test public void executeRejectedBeyondLimit() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    service.a().execute();
+
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        release.await();
+        return new MockResponse().setBody("Hi");
+      }
+    });
+    enqueue(service.a());
+    try {
+      service.alsoA().execute();
+      fail();
+    } catch (LimitExceededException e) {
+      assertThat(e).hasMessage("Concurrency limit of 1 reached for GET " + server.url("/a"));
+    }
+  }
+
+  @Test public void baseUrlsHaveTheirOwnLimit() throws IOException {
+    Retrofit other = new Retrofit.Builder()
+        .baseUrl(server.url("/other/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    Service otherService = other.create(Service.class);
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    assertThat(service.a().execute().code()).isEqualTo(503);
+    assertThat(otherService.a().execute().body()).isEqualTo("Hi");
+    assertThat(factory.limits())
+        .containsEntry("GET " + server.url("/a"), 1)
+        .containsEntry("GET " + server.url("/other/a"), 2);
+  }
+
+  @Test public void builderValidatesLimits() {
+    try {
+      new AdaptiveLimitCallAdapterFactory.Builder().minLimit(5).maxLimit(4).build();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("minLimit > maxLimit");
+    }
+    try {
+      new AdaptiveLimitCallAdapterFactory.Builder().initialLimit(300).build();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("initialLimit must be between minLimit and maxLimit");
+    }
+  }
+}
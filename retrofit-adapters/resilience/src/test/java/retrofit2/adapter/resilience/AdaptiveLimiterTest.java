@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class AdaptiveLimiterTest {
+  @Test public void growsWhileLatencyIsSteady() {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10);
+    for (int i = 0; i < 10; i++) {
+      int before = limiter.tryAcquire();
+      limiter.onSuccess(1000, before);
+    }
+    assertThat(limiter.limit()).isGreaterThan(1);
+    assertThat(limiter.inFlight()).isEqualTo(0);
+  }
+
+  @Test public void doesNotGrowWhileUnused() {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(20, 1, 100);
+    for (int i = 0; i < 10; i++) {
+      int before = limiter.tryAcquire();
+      limiter.onSuccess(1000, before);
+    }
+    assertThat(limiter.limit()).isEqualTo(20);
+  }
+
+  @Test public void shrinksWhenLatencyRises() {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(20, 1, 20);
+    for (int i = 0; i < 100; i++) {
+      limiter.tryAcquire();
+      limiter.onSuccess(1000, 19);
+    }
+    assertThat(limiter.limit()).isEqualTo(20);
+
+    for (int i = 0; i < 10; i++) {
+      limiter.tryAcquire();
+      limiter.onSuccess(10000, 19);
+    }
+    assertThat(limiter.limit()).isLessThan(20);
+  }
+
+  @Test public void dropsBackOffToMinimum() {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(10, 3, 10);
+    limiter.tryAcquire();
+    limiter.onDropped();
+    assertThat(limiter.limit()).isEqualTo(9);
+
+    for (int i = 0; i < 50; i++) {
+      limiter.tryAcquire();
+      limiter.onDropped();
+    }
+    assertThat(limiter.limit()).isEqualTo(3);
+    assertThat(limiter.inFlight()).isEqualTo(0);
+  }
+
+  @Test public void rejectsAtLimit() {
+    AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 2);
+    assertThat(limiter.tryAcquire()).isEqualTo(0);
+    assertThat(limiter.tryAcquire()).isEqualTo(1);
+    assertThat(limiter.tryAcquire()).isEqualTo(-1);
+
+    limiter.onIgnored();
+    assertThat(limiter.limit()).isEqualTo(2);
+    assertThat(limiter.tryAcquire()).isEqualTo(1);
+  }
+}
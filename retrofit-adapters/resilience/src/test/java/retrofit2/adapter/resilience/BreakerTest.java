@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class BreakerTest {
+  interface Configs {
+    @CircuitBreaker(windowSize = 2, minimumCalls = 2, openDuration = 100, probes = 2,
+        unit = NANOSECONDS)
+    void twoProbes();
+  }
+
+  private final Breaker breaker;
+
+  public BreakerTest() throws NoSuchMethodException {
+    breaker = new Breaker(
+        Configs.class.getMethod("twoProbes").getAnnotation(CircuitBreaker.class));
+  }
+
+  private void trip(long nowNanos) {
+    for (int i = 0; i < 2; i++) {
+      assertThat(breaker.tryAcquire(nowNanos)).isEqualTo(Breaker.PERMITTED);
+      breaker.onResult(Breaker.PERMITTED, true, 0L, nowNanos);
+    }
+    assertThat(breaker.state()).isEqualTo(Breaker.OPEN);
+  }
+
+  @Test public void halfOpenAdmitsConfiguredProbes() {
+    trip(0L);
+    assertThat(breaker.tryAcquire(99L)).isEqualTo(Breaker.REJECTED);
+
+    assertThat(breaker.tryAcquire(100L)).isEqualTo(Breaker.PROBE);
+    assertThat(breaker.state()).isEqualTo(Breaker.HALF_OPEN);
+    assertThat(breaker.tryAcquire(100L)).isEqualTo(Breaker.PROBE);
+    assertThat(breaker.tryAcquire(100L)).isEqualTo(Breaker.REJECTED);
+
+    breaker.onResult(Breaker.PROBE, false, 0L, 101L);
+    breaker.onResult(Breaker.PROBE, false, 0L, 101L);
+    assertThat(breaker.state()).isEqualTo(Breaker.CLOSED);
+  }
+
+  @Test public void failedProbeReopensFromItsOwnTime() {
+    trip(0L);
+    assertThat(breaker.tryAcquire(100L)).isEqualTo(Breaker.PROBE);
+    breaker.onResult(Breaker.PROBE, true, 0L, 150L);
+    assertThat(breaker.state()).isEqualTo(Breaker.OPEN);
+
+    assertThat(breaker.tryAcquire(249L)).isEqualTo(Breaker.REJECTED);
+    // The next half-open period starts with a fresh probe count.
+    assertThat(breaker.tryAcquire(250L)).isEqualTo(Breaker.PROBE);
+    assertThat(breaker.tryAcquire(250L)).isEqualTo(Breaker.PROBE);
+    assertThat(breaker.tryAcquire(250L)).isEqualTo(Breaker.REJECTED);
+  }
+
+  @Test public void ignoredProbeIsReleased() {
+    trip(0L);
+    assertThat(breaker.tryAcquire(100L)).isEqualTo(Breaker.PROBE);
+    assertThat(breaker.tryAcquire(100L)).isEqualTo(Breaker.PROBE);
+    breaker.onIgnored(Breaker.PROBE);
+    assertThat(breaker.tryAcquire(100L)).isEqualTo(Breaker.PROBE);
+  }
+}
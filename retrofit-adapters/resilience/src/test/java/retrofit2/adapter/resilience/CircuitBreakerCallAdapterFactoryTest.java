@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static retrofit2.adapter.resilience.RecordingCallback.enqueue;
+
+public final class CircuitBreakerCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @CircuitBreaker(windowSize = 2, minimumCalls = 2, openDuration = 10, unit = SECONDS)
+    @GET("long/{p}")
+    Call<String> longOpen(@Path("p") String p);
+
+    @CircuitBreaker(windowSize = 2, minimumCalls = 2, openDuration = 100, probes = 1)
+    @GET("short")
+    Call<String> shortOpen();
+
+    @CircuitBreaker(windowSize = 1, minimumCalls = 1, slowCallDuration = 100)
+    @GET("slow")
+    Call<String> slow();
+
+    @CircuitBreaker(failureRate = 2)
+    @GET("invalid")
+    Call<String> invalid();
+  }
+
+  private Service service;
+
+  @Before public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(CircuitBreakerCallAdapterFactory.create())
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test public void opensAfterFailuresAndFailsFast() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    assertThat(service.longOpen("a").execute().code()).isEqualTo(500);
+    assertThat(service.longOpen("a").execute().code()).isEqualTo(503);
+
+    try {
+      // A null path value would fail while creating the request, which an open breaker skips.
+      service.longOpen(null).execute();
+      fail();
+    } catch (CircuitOpenException e) {
+      assertThat(e).hasMessage("Circuit breaker open for GET long/{p}");
+    }
+    Throwable failure = enqueue(service.longOpen("a")).awaitFailure();
+    assertThat(failure).isInstanceOf(CircuitOpenException.class);
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void clientErrorsDoNotCount() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(404));
+    server.enqueue(new MockResponse().setResponseCode(404));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    service.longOpen("a").execute();
+    service.longOpen("a").execute();
+    assertThat(service.longOpen("a").execute().body()).isEqualTo("Hi");
+  }
+
+  @Test public void successfulProbeCloses() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setBody("Probe"));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    service.shortOpen().execute();
+    service.shortOpen().execute();
+    try {
+      service.shortOpen().execute();
+      fail();
+    } catch (CircuitOpenException expected) {
+    }
+
+    Thread.sleep(150);
+    assertThat(service.shortOpen().execute().body()).isEqualTo("Probe");
+    assertThat(service.shortOpen().execute().body()).isEqualTo("Hi");
+  }
+
+  @Test public void failedProbeReopens() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse().setResponseCode(500));
+
+    service.shortOpen().execute();
+    service.shortOpen().execute();
+
+    Thread.sleep(150);
+    assertThat(service.shortOpen().execute().code()).isEqualTo(500);
+    try {
+      service.shortOpen().execute();
+      fail();
+    } catch (CircuitOpenException expected) {
+    }
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test public void slowCallsCountAsFailures() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi").setBodyDelay(200, MILLISECONDS));
+
+    assertThat(service.slow().execute().body()).isEqualTo("Hi");
+    try {
+      service.slow().execute();
+      fail();
+    } catch (CircuitOpenException expected) {
+    }
+  }
+
+  @Test public void invalidConfigurationRejected() {
+    try {
+      service.invalid();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause())
+          .hasMessage("@CircuitBreaker failureRate must be greater than 0 and at most 1.");
+    }
+  }
+}
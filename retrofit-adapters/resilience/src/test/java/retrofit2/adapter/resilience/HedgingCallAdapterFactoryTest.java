@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static retrofit2.adapter.resilience.RecordingCallback.enqueue;
+
+public final class HedgingCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Hedge(delay = 100) @GET("/") Call<String> quick();
+    @Hedge(delay = 10, unit = SECONDS) @GET("/") Call<String> patient();
+    @Hedge @POST("/") Call<String> post();
+  }
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger requests = new AtomicInteger();
+  private Service service;
+
+  @Before public void setUp() {
+    OkHttpClient client = new OkHttpClient.Builder()
+        .retryOnConnectionFailure(false)
+        .build();
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .client(client)
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(HedgingCallAdapterFactory.create())
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @After public void tearDown() {
+    release.countDown();
+  }
+
+  /** Holds the first request until {@link #release} and answers the rest immediately. */
+  private void slowFirstResponse() {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        if (requests.incrementAndGet() == 1) {
+          release.await();
+          return new MockResponse().setBody("Slow");
+        }
+        return new MockResponse().setBody("Hedge");
+      }
+    });
+  }
+
+  @Test public void executeUsesHedgeWhenFirstIsSlow() throws IOException {
+    slowFirstResponse();
+
+    Response<String> response = service.quick().execute();
+    assertThat(response.body()).isEqualTo("Hedge");
+    assertThat(requests.get()).isEqualTo(2);
+  }
+
+  @Test public void enqueueUsesHedgeWhenFirstIsSlow() throws InterruptedException {
+    slowFirstResponse();
+
+    Response<String> response = enqueue(service.quick()).awaitResponse();
+    assertThat(response.body()).isEqualTo("Hedge");
+    assertThat(requests.get()).isEqualTo(2);
+  }
+
+  @Test public void noHedgeWhenFirstIsFast() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Response<String> response = service.patient().execute();
+    assertThat(response.body()).isEqualTo("Hi");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void failureWaitsForHedge() throws InterruptedException {
+    final CountDownLatch hedgeSent = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        if (requests.incrementAndGet() == 1) {
+          assertTrue(hedgeSent.await(10, SECONDS));
+          return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+        }
+        hedgeSent.countDown();
+        release.await();
+        return new MockResponse().setBody("Hedge");
+      }
+    });
+
+    RecordingCallback<String> callback = enqueue(service.quick());
+    assertTrue(hedgeSent.await(10, SECONDS));
+    release.countDown();
+    assertThat(callback.awaitResponse().body()).isEqualTo("Hedge");
+  }
+
+  @Test public void cancelCancelsBothAttempts() throws InterruptedException {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        requests.incrementAndGet();
+        release.await();
+        return new MockResponse().setBody("Hi");
+      }
+    });
+
+    Call<String> call = service.quick();
+    RecordingCallback<String> callback = enqueue(call);
+    while (requests.get() < 2) {
+      Thread.sleep(10);
+    }
+    call.cancel();
+
+    assertThat(callback.awaitFailure()).isInstanceOf(IOException.class);
+    assertThat(call.isCanceled()).isTrue();
+  }
+
+  @Test public void hedgesCappedByBudget() throws InterruptedException {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        release.await();
+        return new MockResponse().setBody("Hi");
+      }
+    });
+    okhttp3.Dispatcher dispatcher = new okhttp3.Dispatcher();
+    dispatcher.setMaxRequestsPerHost(64);
+    Service service = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .client(new OkHttpClient.Builder().dispatcher(dispatcher).build())
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(new HedgingCallAdapterFactory.Builder().budgetRatio(0).build())
+        .build()
+        .create(Service.class);
+
+    // With nothing earned, only the initial reserve of hedges is sent.
+    int calls = RetryBudget.MAX_BALANCE + 5;
+    for (int i = 0; i < calls; i++) {
+      enqueue(service.quick());
+    }
+    for (int i = 0; i < calls + RetryBudget.MAX_BALANCE; i++) {
+      assertThat(server.takeRequest(10, SECONDS)).isNotNull();
+    }
+    assertThat(server.takeRequest(500, MILLISECONDS)).isNull();
+  }
+
+  @Test public void nonIdempotentMethodRejected() {
+    try {
+      service.post();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("@Hedge can only be used on GET and HEAD methods.");
+    }
+  }
+}
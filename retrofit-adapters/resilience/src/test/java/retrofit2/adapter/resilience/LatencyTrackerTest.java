@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class LatencyTrackerTest {
+  @Test public void unknownUntilEnoughSamples() {
+    LatencyTracker tracker = new LatencyTracker(0.95);
+    for (int i = 1; i < LatencyTracker.MIN_SAMPLES; i++) {
+      tracker.record(i);
+    }
+    assertThat(tracker.percentileNanos()).isEqualTo(-1L);
+
+    tracker.record(LatencyTracker.MIN_SAMPLES);
+    assertThat(tracker.percentileNanos()).isEqualTo(19L);
+  }
+
+  @Test public void oldSamplesAreForgotten() {
+    LatencyTracker tracker = new LatencyTracker(0.95);
+    for (int i = 0; i < LatencyTracker.CAPACITY; i++) {
+      tracker.record(1000);
+    }
+    assertThat(tracker.percentileNanos()).isEqualTo(1000L);
+
+    for (int i = 0; i < LatencyTracker.CAPACITY; i++) {
+      tracker.record(10);
+    }
+    assertThat(tracker.percentileNanos()).isEqualTo(10L);
+  }
+}
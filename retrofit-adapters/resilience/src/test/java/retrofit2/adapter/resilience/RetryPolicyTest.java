@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import okhttp3.Headers;
+import org.junit.Test;
+import retrofit2.http.GET;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class RetryPolicyTest {
+  interface Service {
+    @Retry(initialDelay = 100, maxDelay = 1000) @GET("/") void method();
+  }
+
+  private final RetryPolicy policy = new RetryPolicy(retry());
+
+  private static Retry retry() {
+    try {
+      return Service.class.getMethod("method").getAnnotation(Retry.class);
+    } catch (NoSuchMethodException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Test public void backoffDoublesWithJitterUpToMax() {
+    for (int i = 0; i < 100; i++) {
+      assertThat(policy.backoffNanos(1))
+          .isBetween(MILLISECONDS.toNanos(50), MILLISECONDS.toNanos(100));
+      assertThat(policy.backoffNanos(2))
+          .isBetween(MILLISECONDS.toNanos(100), MILLISECONDS.toNanos(200));
+      assertThat(policy.backoffNanos(60))
+          .isBetween(MILLISECONDS.toNanos(500), SECONDS.toNanos(1));
+    }
+  }
+
+  @Test public void retryAfterSeconds() {
+    Headers headers = Headers.of("Retry-After", "1");
+    assertThat(policy.retryAfterNanos(headers, 0L)).isEqualTo(SECONDS.toNanos(1));
+  }
+
+  @Test public void retryAfterDate() {
+    DateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    Date date = new Date(1500000000000L);
+    Headers headers = Headers.of("Retry-After", format.format(date));
+    long now = date.getTime() - 500L;
+    assertThat(policy.retryAfterNanos(headers, now)).isEqualTo(MILLISECONDS.toNanos(500));
+  }
+
+  @Test public void retryAfterBeyondMaxDelay() {
+    Headers headers = Headers.of("Retry-After", "2");
+    assertThat(policy.retryAfterNanos(headers, 0L)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test public void retryAfterAbsentOrMalformed() {
+    assertThat(policy.retryAfterNanos(Headers.of(), 0L)).isEqualTo(-1L);
+    assertThat(policy.retryAfterNanos(Headers.of("Retry-After", "soon"), 0L)).isEqualTo(-1L);
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static retrofit2.adapter.resilience.RecordingCallback.enqueue;
+
+public final class RetryingCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Retry(initialDelay = 1) @GET("/") Call<String> threeAttempts();
+    @Retry(maxAttempts = 100, initialDelay = 0) @GET("/") Call<String> manyAttempts();
+    @Retry(initialDelay = 1, maxDelay = 2, unit = SECONDS) @GET("/") Call<String> patient();
+    @Retry(initialDelay = 10, unit = SECONDS) @GET("/") Call<String> slow();
+    @Retry(maxAttempts = 0) @GET("/") Call<String> invalid();
+  }
+
+  private Service service;
+
+  @Before public void setUp() {
+    service = service(RetryingCallAdapterFactory.create());
+  }
+
+  private Service service(RetryingCallAdapterFactory factory) {
+    OkHttpClient client = new OkHttpClient.Builder()
+        .retryOnConnectionFailure(false)
+        .build();
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .client(client)
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(factory)
+        .build();
+    return retrofit.create(Service.class);
+  }
+
+  @Test public void executeRetriesUnavailable() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(429));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Response<String> response = service.threeAttempts().execute();
+    assertThat(response.body()).isEqualTo("Hi");
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test public void enqueueRetriesIoFailure() throws InterruptedException {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    Response<String> response = enqueue(service.threeAttempts()).awaitResponse();
+    assertThat(response.body()).isEqualTo("Hi");
+    assertThat(server.getRequestCount()).isEqualTo(2);
+  }
+
+  @Test public void lastAttemptDelivered() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(502));
+
+    Response<String> response = service.threeAttempts().execute();
+    assertThat(response.code()).isEqualTo(502);
+    assertThat(server.getRequestCount()).isEqualTo(3);
+  }
+
+  @Test public void clientErrorNotRetried() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(404));
+
+    Response<String> response = enqueue(service.threeAttempts()).awaitResponse();
+    assertThat(response.code()).isEqualTo(404);
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void retryAfterHonored() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "0"));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    long startNanos = System.nanoTime();
+    Response<String> response = service.patient().execute();
+    assertThat(response.body()).isEqualTo("Hi");
+    // Retry-After replaced the one second backoff.
+    assertThat(System.nanoTime() - startNanos).isLessThan(SECONDS.toNanos(1));
+  }
+
+  @Test public void retryAfterBeyondMaxDelayNotRetried() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "60"));
+
+    Response<String> response = service.patient().execute();
+    assertThat(response.code()).isEqualTo(503);
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void budgetCapsRetries() throws IOException {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setResponseCode(503);
+      }
+    });
+    Service service = service(new RetryingCallAdapterFactory.Builder()
+        .budgetRatio(0)
+        .build());
+
+    assertThat(service.manyAttempts().execute().code()).isEqualTo(503);
+    assertThat(server.getRequestCount()).isEqualTo(1 + RetryBudget.MAX_BALANCE);
+
+    assertThat(service.manyAttempts().execute().code()).isEqualTo(503);
+    assertThat(server.getRequestCount()).isEqualTo(2 + RetryBudget.MAX_BALANCE);
+  }
+
+  @Test public void cancelWhileWaiting() throws InterruptedException {
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    Call<String> call = service.slow();
+    RecordingCallback<String> callback = enqueue(call);
+    server.takeRequest();
+    Thread.sleep(200); // Let the retry be scheduled.
+    call.cancel();
+
+    assertThat(callback.awaitFailure()).isInstanceOf(IOException.class).hasMessage("Canceled");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void invalidPolicyRejected() {
+    try {
+      service.invalid();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("@Retry maxAttempts must be at least 1.");
+    }
+  }
+}
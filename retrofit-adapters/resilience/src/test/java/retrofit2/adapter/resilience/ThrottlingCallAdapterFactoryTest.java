@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.adapter.resilience;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static retrofit2.adapter.resilience.RecordingCallback.enqueue;
+
+public final class ThrottlingCallAdapterFactoryTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  interface Service {
+    @Throttle(maxConcurrent = 2) @GET("/") Call<String> twoAtOnce();
+    @Throttle(maxConcurrent = 1) @GET("/") Call<String> oneAtOnce();
+    @Throttle(maxConcurrent = 1) @GET("{path}") Call<String> oneAtOnceAt(@Path("path") String path);
+    @Throttle(permitsPerSecond = 10) @GET("/") Call<String> tenPerSecond();
+    @Throttle(maxConcurrent = 1, group = "shared") @GET("/") Call<String> sharedA();
+    @Throttle(maxConcurrent = 1, group = "shared") @GET("/") Call<String> sharedB();
+    @Throttle(maxConcurrent = 2, group = "shared") @GET("/") Call<String> sharedConflicting();
+  }
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private Service service;
+
+  @Before public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new StringConverterFactory())
+        .addCallAdapterFactory(ThrottlingCallAdapterFactory.create())
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @After public void tearDown() {
+    release.countDown();
+  }
+
+  /** Holds each request until {@link #release} and records how many were held at once. */
+  private void blockResponses() {
+    server.setDispatcher(new Dispatcher() {
+      @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        int now = active.incrementAndGet();
+        while (true) {
+          int max = maxActive.get();
+          if (now <= max || maxActive.compareAndSet(max, now)) break;
+        }
+        release.await();
+        active.decrementAndGet();
+        return new MockResponse().setBody("Hi");
+      }
+    });
+  }
+
+  @Test public void concurrencyLimited() throws InterruptedException {
+    blockResponses();
+
+    List<RecordingCallback<String>> callbacks = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      callbacks.add(enqueue(service.twoAtOnce()));
+    }
+    server.takeRequest();
+    server.takeRequest();
+    assertThat(server.takeRequest(200, MILLISECONDS)).isNull();
+    release.countDown();
+
+    for (RecordingCallback<String> callback : callbacks) {
+      assertThat(callback.awaitResponse().body()).isEqualTo("Hi");
+    }
+    assertThat(maxActive.get()).isEqualTo(2);
+    assertThat(server.getRequestCount()).isEqualTo(6);
+  }
+
+  @Test public void rateLimited() throws IOException {
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hi"));
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    long start = System.nanoTime();
+    service.tenPerSecond().execute();
+    service.tenPerSecond().execute();
+    service.tenPerSecond().execute();
+    long elapsedMillis = MILLISECONDS.convert(System.nanoTime() - start, NANOSECONDS);
+    assertThat(elapsedMillis).isGreaterThanOrEqualTo(190);
+  }
+
+  @Test public void cancelingQueuedCallRemovesIt() throws InterruptedException {
+    blockResponses();
+
+    RecordingCallback<String> first = enqueue(service.oneAtOnce());
+    Call<String> queued = service.oneAtOnce();
+    RecordingCallback<String> second = enqueue(queued);
+    server.takeRequest();
+
+    queued.cancel();
+    assertThat(queued.isCanceled()).isTrue();
+    assertThat(second.awaitFailure()).hasMessage("Canceled");
+
+    release.countDown();
+    assertThat(first.awaitResponse().body()).isEqualTo("Hi");
+    assertThat(server.getRequestCount()).isEqualTo(1);
+  }
+
+  @Test public void executeWaitsForEnqueuedCall() throws Exception {
+    blockResponses();
+
+    RecordingCallback<String> first = enqueue(service.oneAtOnce());
+    server.takeRequest();
+    release.countDown();
+    assertThat(service.oneAtOnce().execute().body()).isEqualTo("Hi");
+    assertThat(first.awaitResponse().body()).isEqualTo("Hi");
+    assertThat(maxActive.get()).isEqualTo(1);
+  }
+
+  @Test public void synchronousFailuresDrainQueueWithoutRecursion()
+      throws InterruptedException {
+    blockResponses();
+    RecordingCallback<String> first = enqueue(service.oneAtOnceAt("a"));
+    server.takeRequest();
+
+    // A null path fails request creation, so each of these fails as soon as it is granted.
+    final AtomicInteger failures = new AtomicInteger();
+    for (int i = 0; i < 10000; i++) {
+      service.oneAtOnceAt(null).enqueue(new Callback<String>() {
+        @Override public void onResponse(Call<String> call, Response<String> response) {
+          throw new AssertionError();
+        }
+
+        @Override public void onFailure(Call<String> call, Throwable t) {
+          if (failures.getAndIncrement() == 0) throw new RuntimeException("Broken!");
+        }
+      });
+    }
+    RecordingCallback<String> last = enqueue(service.oneAtOnceAt("b"));
+    release.countDown();
+
+    assertThat(first.awaitResponse().body()).isEqualTo("Hi");
+    assertThat(last.awaitResponse().body()).isEqualTo("Hi");
+    assertThat(failures.get()).isEqualTo(10000);
+  }
+
+  @Test public void groupSharesLimits() throws InterruptedException {
+    blockResponses();
+
+    RecordingCallback<String> a = enqueue(service.sharedA());
+    RecordingCallback<String> b = enqueue(service.sharedB());
+    server.takeRequest();
+    assertThat(server.takeRequest(200, MILLISECONDS)).isNull();
+    release.countDown();
+
+    a.awaitResponse();
+    b.awaitResponse();
+    assertThat(maxActive.get()).isEqualTo(1);
+  }
+
+  @Test public void groupWithDifferentLimitsThrows() {
+    service.sharedA();
+    try {
+      service.sharedConflicting();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage(
+          "@Throttle group \"shared\" is declared with different limits on different methods.");
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.http.Field;
+import retrofit2.http.FieldMap;
+import retrofit2.http.FormUrlEncoded;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.HeaderMap;
+import retrofit2.http.Multipart;
+import retrofit2.http.POST;
+import retrofit2.http.Part;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.http.QueryMap;
+
+/**
+ * Measures each stage of a call against an in-process {@link StubCallFactory}: proxy dispatch
+ * to a parsed service method, creating the OkHttp request by applying the parameter handlers,
+ * and executing the call which parses and converts the response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallPipelineBenchmark {
+  interface Service {
+    @GET("users") Call<ResponseBody> noParams();
+    @GET("users") Call<Void> noParamsVoid();
+    @GET("users") Call<String> noParamsString();
+
+    @GET("orgs/{org}/users/{user}") Call<ResponseBody> parameters(@Path("org") String org,
+        @Path("user") String user, @Query("page") int page, @QueryMap Map<String, String> query,
+        @Header("X-Trace") String trace, @HeaderMap Map<String, String> headers);
+
+    @FormUrlEncoded
+    @POST("users") Call<ResponseBody> form(@Field("name") String name,
+        @Field("email") String email, @FieldMap Map<String, String> fields);
+
+    @Multipart
+    @POST("users") Call<ResponseBody> multipart(@Part("name") RequestBody name,
+        @Part("avatar") RequestBody avatar);
+  }
+
+  private final Map<String, String> query = new LinkedHashMap<>();
+  private final Map<String, String> headers = new LinkedHashMap<>();
+  private final Map<String, String> fields = new LinkedHashMap<>();
+  private final RequestBody name = RequestBody.create(MediaType.get("text/plain"), "Jake");
+  private final RequestBody avatar =
+      RequestBody.create(MediaType.get("image/png"), new byte[1024]);
+
+  private Service service;
+
+  @Setup public void setUp() {
+    query.put("sort", "name");
+    query.put("order", "asc");
+    headers.put("Accept-Language", "en");
+    headers.put("X-Request-Id", "8c1f5b0e");
+    fields.put("role", "admin");
+    fields.put("team", "retrofit");
+
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/")
+        .callFactory(new StubCallFactory(MediaType.get("text/plain; charset=utf-8"),
+            "Hello, World!".getBytes()))
+        .addConverterFactory(ScalarsConverterFactory.create())
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Benchmark public Call<ResponseBody> dispatch() {
+    return service.noParams();
+  }
+
+  @Benchmark public Request requestNoParams() {
+    return service.noParams().request();
+  }
+
+  @Benchmark public Request requestParameters() {
+    return service.parameters("square", "jakewharton", 2, query, "trace", headers).request();
+  }
+
+  @Benchmark public Request requestForm() {
+    return service.form("Jake", "jake@example.com", fields).request();
+  }
+
+  @Benchmark public Request requestMultipart() {
+    return service.multipart(name, avatar).request();
+  }
+
+  @Benchmark public Response<ResponseBody> executeResponseBody() throws IOException {
+    Response<ResponseBody> response = service.noParams().execute();
+    response.body().close();
+    return response;
+  }
+
+  @Benchmark public Response<Void> executeVoid() throws IOException {
+    return service.noParamsVoid().execute();
+  }
+
+  @Benchmark public Response<String> executeString() throws IOException {
+    return service.noParamsString().execute();
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import com.google.protobuf.StringValue;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+import retrofit2.converter.jaxb.JaxbConverterFactory;
+import retrofit2.converter.moshi.MoshiConverterFactory;
+import retrofit2.converter.protobuf.ProtoConverterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
+
+/**
+ * Measures each converter turning a payload into a {@link RequestBody} written to a sink, and a
+ * {@link ResponseBody} back into a payload. JSON converters share {@link ItemPage} and XML
+ * converters share {@link XmlItemPage}, so scores within a format are directly comparable.
+ * Protocol buffers and scalars use a string of roughly the same encoded size.
+ *
+ * <p>Wire is not covered because its runtime ships no message types to benchmark against.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+  private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+  @Param({ "gson", "jackson", "moshi", "jaxb", "simplexml", "protobuf", "scalars" })
+  String library;
+
+  /** The number of items in the payload. */
+  @Param({ "1", "100", "10000" })
+  int size;
+
+  private final Buffer sink = new Buffer();
+  private Object payload;
+  private Converter<Object, RequestBody> requestBodyConverter;
+  private Converter<ResponseBody, ?> responseBodyConverter;
+  private MediaType mediaType;
+  private byte[] encoded;
+
+  @SuppressWarnings("deprecation") // Simple XML is deprecated but still shipped.
+  @Setup public void setUp() throws IOException {
+    Converter.Factory factory;
+    Type type;
+    switch (library) {
+      case "gson":
+        factory = GsonConverterFactory.create();
+        type = ItemPage.class;
+        payload = ItemPage.of(size);
+        break;
+      case "jackson":
+        factory = JacksonConverterFactory.create();
+        type = ItemPage.class;
+        payload = ItemPage.of(size);
+        break;
+      case "moshi":
+        factory = MoshiConverterFactory.create();
+        type = ItemPage.class;
+        payload = ItemPage.of(size);
+        break;
+      case "jaxb":
+        factory = JaxbConverterFactory.create();
+        type = XmlItemPage.class;
+        payload = XmlItemPage.of(size);
+        break;
+      case "simplexml":
+        factory = SimpleXmlConverterFactory.create();
+        type = XmlItemPage.class;
+        payload = XmlItemPage.of(size);
+        break;
+      case "protobuf":
+        factory = ProtoConverterFactory.create();
+        type = StringValue.class;
+        payload = StringValue.newBuilder().setValue(text(size)).build();
+        break;
+      case "scalars":
+        factory = ScalarsConverterFactory.create();
+        type = String.class;
+        payload = text(size);
+        break;
+      default:
+        throw new IllegalArgumentException(library);
+    }
+
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://example.com/")
+        .callFactory(StubCallFactory.empty())
+        .addConverterFactory(factory)
+        .build();
+    requestBodyConverter = retrofit.requestBodyConverter(type, NO_ANNOTATIONS, NO_ANNOTATIONS);
+    responseBodyConverter = retrofit.responseBodyConverter(type, NO_ANNOTATIONS);
+
+    RequestBody body = requestBodyConverter.convert(payload);
+    mediaType = body.contentType();
+    Buffer buffer = new Buffer();
+    body.writeTo(buffer);
+    encoded = buffer.readByteArray();
+  }
+
+  /** Roughly the size of an encoded {@link ItemPage} with {@code size} items. */
+  private static String text(int size) {
+    StringBuilder builder = new StringBuilder(size * 120);
+    for (int i = 0; i < size; i++) {
+      builder.append("A moderately long item name with some unicode éè in it #").append(i)
+          .append(" alpha beta gamma item-").append(i).append('\n');
+    }
+    return builder.toString();
+  }
+
+  @Benchmark public long requestBody() throws IOException {
+    RequestBody body = requestBodyConverter.convert(payload);
+    body.writeTo(sink);
+    long written = sink.size();
+    sink.clear();
+    return written;
+  }
+
+  @Benchmark public Object responseBody() throws IOException {
+    return responseBodyConverter.convert(ResponseBody.create(mediaType, encoded));
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Retrofit;
+
+/**
+ * Measures {@link Retrofit#create} with eager validation of a large service, parsing methods
+ * either one at a time on the calling thread or concurrently on a {@link ForkJoinPool}. The
+ * difference between the two scores is the startup time saved per service interface.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 500)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EagerValidationBenchmark {
+  private final OkHttpClient client = new OkHttpClient();
+
+  @Benchmark public WideService serial() {
+    return new Retrofit.Builder()
+        .baseUrl("https://example.com/")
+        .callFactory(client)
+        .validateEagerly(true)
+        .build()
+        .create(WideService.class);
+  }
+
+  @Benchmark public WideService parallel() {
+    return new Retrofit.Builder()
+        .baseUrl("https://example.com/")
+        .callFactory(client)
+        .validateEagerly(ForkJoinPool.commonPool())
+        .build()
+        .create(WideService.class);
+  }
+}
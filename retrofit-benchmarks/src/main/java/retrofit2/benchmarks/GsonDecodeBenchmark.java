@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Compares Gson decoding UTF-8 responses through {@link ResponseBody#charStream()}, as the
+ * converter used to, with the converter's direct decoding from the body's source.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GsonDecodeBenchmark {
+  private static final MediaType JSON = MediaType.get("application/json; charset=UTF-8");
+
+  /** The approximate size of the encoded payload in bytes. */
+  @Param({ "1024", "102400", "10485760" })
+  int bytes;
+
+  private final Gson gson = new Gson();
+  private final TypeAdapter<ItemPage> adapter = gson.getAdapter(ItemPage.class);
+  private Converter<ResponseBody, ItemPage> converter;
+  private byte[] encoded;
+
+  @Setup public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://example.com/")
+        .callFactory(StubCallFactory.empty())
+        .addConverterFactory(GsonConverterFactory.create(gson))
+        .build();
+    converter = retrofit.responseBodyConverter(ItemPage.class, new Annotation[0]);
+
+    int bytesPerItem = gson.toJson(ItemPage.of(100)).getBytes(StandardCharsets.UTF_8).length / 100;
+    ItemPage page = ItemPage.of(Math.max(1, bytes / bytesPerItem));
+    encoded = gson.toJson(page).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark public ItemPage charStream() throws IOException {
+    ResponseBody body = ResponseBody.create(JSON, encoded);
+    try {
+      JsonReader jsonReader = gson.newJsonReader(body.charStream());
+      ItemPage result = adapter.read(jsonReader);
+      if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonIOException("JSON document was not fully consumed.");
+      }
+      return result;
+    } finally {
+      body.close();
+    }
+  }
+
+  @Benchmark public ItemPage source() throws IOException {
+    return converter.convert(ResponseBody.create(JSON, encoded));
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A JSON payload: a page of items, shared by every JSON converter benchmark. */
+public final class ItemPage {
+  public List<Item> items = new ArrayList<>();
+
+  static ItemPage of(int size) {
+    ItemPage page = new ItemPage();
+    for (int i = 0; i < size; i++) {
+      Item item = new Item();
+      item.id = "item-" + i;
+      item.name = "A moderately long item name with some unicode éè in it #" + i;
+      item.count = i;
+      item.active = i % 2 == 0;
+      item.tags = Arrays.asList("alpha", "beta", "gamma");
+      page.items.add(item);
+    }
+    return page;
+  }
+
+  public static final class Item {
+    public String id;
+    public String name;
+    public int count;
+    public boolean active;
+    public List<String> tags;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+
+/** Measures building the {@link Request} of a call, which is dominated by URL construction. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestUrlBenchmark {
+  interface Service {
+    @GET("api/v1/users/list") Call<ResponseBody> staticPath();
+    @GET("api/v1/users/list") Call<ResponseBody> staticPathWithQuery(@Query("page") int page,
+        @Query("sort") String sort);
+    @GET("api/v1/orgs/{org}/users/{user}/repos/{repo}") Call<ResponseBody> pathParams(
+        @Path("org") String org, @Path("user") String user, @Path("repo") String repo);
+    @GET("api/v1/orgs/{org}/users/{user}/repos/{repo}") Call<ResponseBody> pathParamsWithQuery(
+        @Path("org") String org, @Path("user") String user, @Path("repo") String repo,
+        @Query("page") int page);
+  }
+
+  private Service service;
+
+  @Setup public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/base/")
+        .callFactory(StubCallFactory.empty())
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Benchmark public Request staticPath() {
+    return service.staticPath().request();
+  }
+
+  @Benchmark public Request staticPathWithQuery() {
+    return service.staticPathWithQuery(2, "name").request();
+  }
+
+  @Benchmark public Request pathParams() {
+    return service.pathParams("square", "jakewharton", "retrofit").request();
+  }
+
+  @Benchmark public Request pathParamsWithQuery() {
+    return service.pathParamsWithQuery("square", "jakewharton", "retrofit", 2).request();
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+import retrofit2.Retrofit;
+
+/**
+ * Measures how long it takes a cold {@link Retrofit} instance to parse every method of a large
+ * service when many threads make their first calls at the same time, as happens on a cold start.
+ * Compare the {@code Threads(1)} and {@code Threads(8)} scores: if parsing is serialized behind a
+ * single lock the contended score grows with the thread count instead of staying flat.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50)
+@Measurement(iterations = 500)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceMethodCacheBenchmark {
+  private final OkHttpClient client = new OkHttpClient();
+  private final Method[] methods = WideService.class.getDeclaredMethods();
+  private final Object[] args = { "42", 1, "trace" };
+
+  WideService service;
+
+  /** A fresh instance per iteration so that every measurement sees an empty method cache. */
+  @Setup(Level.Iteration) public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("https://example.com/")
+        .callFactory(client)
+        .build();
+    service = retrofit.create(WideService.class);
+  }
+
+  @Benchmark @Threads(1)
+  public void coldUncontended(ThreadParams threadParams, Blackhole bh) throws Exception {
+    invokeAll(threadParams.getThreadIndex(), bh);
+  }
+
+  @Benchmark @Threads(8)
+  public void coldContended(ThreadParams threadParams, Blackhole bh) throws Exception {
+    invokeAll(threadParams.getThreadIndex(), bh);
+  }
+
+  /** Each thread starts at a different method, so threads mostly parse different methods. */
+  private void invokeAll(int threadIndex, Blackhole bh) throws Exception {
+    int count = methods.length;
+    int start = threadIndex * (count / 8);
+    for (int i = 0; i < count; i++) {
+      bh.consume(methods[(start + i) % count].invoke(service, args));
+    }
+  }
+}
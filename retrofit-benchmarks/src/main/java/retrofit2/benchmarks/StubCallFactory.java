@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+
+/**
+ * An in-process {@link Call.Factory} whose calls complete immediately with a canned 200 response.
+ * This keeps the network out of benchmarks which measure Retrofit's own overhead. Synchronous calls
+ * may instead block for a fixed latency, standing in for a network round trip.
+ */
+final class StubCallFactory implements Call.Factory {
+  private final @Nullable MediaType contentType;
+  private final byte[] body;
+  private final long latencyNanos;
+
+  StubCallFactory(@Nullable MediaType contentType, byte[] body) {
+    this(contentType, body, 0L);
+  }
+
+  StubCallFactory(@Nullable MediaType contentType, byte[] body, long latencyNanos) {
+    this.contentType = contentType;
+    this.body = body;
+    this.latencyNanos = latencyNanos;
+  }
+
+  /** A factory whose responses have an empty body. */
+  static StubCallFactory empty() {
+    return new StubCallFactory(null, new byte[0]);
+  }
+
+  @Override public Call newCall(Request request) {
+    return new StubCall(request);
+  }
+
+  Response response(Request request) {
+    return new Response.Builder()
+        .request(request)
+        .protocol(Protocol.HTTP_1_1)
+        .code(200)
+        .message("OK")
+        .body(ResponseBody.create(contentType, body))
+        .build();
+  }
+
+  final class StubCall implements Call {
+    private final Request request;
+    private boolean executed;
+    private volatile boolean canceled;
+
+    StubCall(Request request) {
+      this.request = request;
+    }
+
+    @Override public Request request() {
+      return request;
+    }
+
+    @Override public Response execute() throws IOException {
+      markExecuted();
+      if (canceled) throw new IOException("Canceled");
+      if (latencyNanos > 0L) LockSupport.parkNanos(latencyNanos);
+      return response(request);
+    }
+
+    @Override public void enqueue(Callback responseCallback) {
+      markExecuted();
+      if (canceled) {
+        responseCallback.onFailure(this, new IOException("Canceled"));
+        return;
+      }
+      try {
+        responseCallback.onResponse(this, response(request));
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    private synchronized void markExecuted() {
+      if (executed) throw new IllegalStateException("Already Executed");
+      executed = true;
+    }
+
+    @Override public void cancel() {
+      canceled = true;
+    }
+
+    @Override public synchronized boolean isExecuted() {
+      return executed;
+    }
+
+    @Override public boolean isCanceled() {
+      return canceled;
+    }
+
+    @Override public Timeout timeout() {
+      return Timeout.NONE;
+    }
+
+    @SuppressWarnings("CloneDoesntCallSuperClone") // A fresh call, as OkHttp does.
+    @Override public Call clone() {
+      return new StubCall(request);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import okhttp3.MediaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.http.GET;
+
+/**
+ * Runs 100,000 blocking calls at once on virtual threads, each blocked for 10 ms as a network round
+ * trip would block it. {@link #execute} blocks in {@link Call#execute()} on a virtual thread per
+ * call, and {@link #enqueue} blocks in callbacks run by
+ * {@link Retrofit.Builder#virtualThreadCallbackExecutor()}. With no carrier thread pinned, each
+ * takes little more than the 10 ms latency rather than 100,000 &times; 10 ms divided by the number
+ * of carrier threads.
+ * <p>
+ * Virtual threads require Java 21. Run with {@code -Djdk.tracePinnedThreads=short} to have the JVM
+ * report any pinning.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+  interface Service {
+    @GET("/") Call<String> get();
+  }
+
+  private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  @Param({ "100000" })
+  int calls;
+
+  private ExecutorService executor;
+  private Service blockingService;
+  private Service callbackService;
+
+  @Setup public void setUp() throws Exception {
+    executor = (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+
+    MediaType contentType = MediaType.get("text/plain; charset=utf-8");
+    byte[] body = "Hi".getBytes("UTF-8");
+    blockingService = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/")
+        .callFactory(new StubCallFactory(contentType, body, LATENCY_NANOS))
+        .addConverterFactory(ScalarsConverterFactory.create())
+        .build()
+        .create(Service.class);
+    callbackService = new Retrofit.Builder()
+        .baseUrl("https://api.example.com/")
+        .callFactory(new StubCallFactory(contentType, body))
+        .addConverterFactory(ScalarsConverterFactory.create())
+        .virtualThreadCallbackExecutor()
+        .build()
+        .create(Service.class);
+  }
+
+  @TearDown public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark public void execute() throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(calls);
+    for (int i = 0; i < calls; i++) {
+      executor.execute(new Runnable() {
+        @Override public void run() {
+          try {
+            blockingService.get().execute();
+          } catch (IOException e) {
+            throw new AssertionError(e);
+          } finally {
+            done.countDown();
+          }
+        }
+      });
+    }
+    done.await();
+  }
+
+  @Benchmark public void enqueue() throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(calls);
+    Callback<String> callback = new Callback<String>() {
+      @Override public void onResponse(Call<String> call, Response<String> response) {
+        LockSupport.parkNanos(LATENCY_NANOS);
+        done.countDown();
+      }
+
+      @Override public void onFailure(Call<String> call, Throwable t) {
+        throw new AssertionError(t);
+      }
+    };
+    for (int i = 0; i < calls; i++) {
+      callbackService.get().enqueue(callback);
+    }
+    done.await();
+  }
+}
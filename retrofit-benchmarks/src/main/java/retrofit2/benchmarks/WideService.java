@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+
+/** A service with many similar methods, approximating a large production API interface. */
+interface WideService {
+  @GET("resource00/{id}/items") Call<ResponseBody> method00(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource01/{id}/items") Call<ResponseBody> method01(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource02/{id}/items") Call<ResponseBody> method02(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource03/{id}/items") Call<ResponseBody> method03(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource04/{id}/items") Call<ResponseBody> method04(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource05/{id}/items") Call<ResponseBody> method05(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource06/{id}/items") Call<ResponseBody> method06(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource07/{id}/items") Call<ResponseBody> method07(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource08/{id}/items") Call<ResponseBody> method08(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource09/{id}/items") Call<ResponseBody> method09(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource10/{id}/items") Call<ResponseBody> method10(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource11/{id}/items") Call<ResponseBody> method11(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource12/{id}/items") Call<ResponseBody> method12(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource13/{id}/items") Call<ResponseBody> method13(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource14/{id}/items") Call<ResponseBody> method14(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource15/{id}/items") Call<ResponseBody> method15(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource16/{id}/items") Call<ResponseBody> method16(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource17/{id}/items") Call<ResponseBody> method17(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource18/{id}/items") Call<ResponseBody> method18(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource19/{id}/items") Call<ResponseBody> method19(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource20/{id}/items") Call<ResponseBody> method20(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource21/{id}/items") Call<ResponseBody> method21(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource22/{id}/items") Call<ResponseBody> method22(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource23/{id}/items") Call<ResponseBody> method23(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource24/{id}/items") Call<ResponseBody> method24(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource25/{id}/items") Call<ResponseBody> method25(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource26/{id}/items") Call<ResponseBody> method26(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource27/{id}/items") Call<ResponseBody> method27(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource28/{id}/items") Call<ResponseBody> method28(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource29/{id}/items") Call<ResponseBody> method29(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource30/{id}/items") Call<ResponseBody> method30(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+  @GET("resource31/{id}/items") Call<ResponseBody> method31(@Path("id") String id,
+      @Query("page") int page, @Header("X-Trace") String trace);
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import org.simpleframework.xml.Element;
+import org.simpleframework.xml.ElementList;
+import org.simpleframework.xml.Root;
+
+/** An XML payload annotated for both JAXB and Simple XML so the two can be compared directly. */
+@XmlRootElement(name = "page")
+@XmlAccessorType(XmlAccessType.FIELD)
+@Root(name = "page")
+public final class XmlItemPage {
+  @XmlElement(name = "item")
+  @ElementList(inline = true, entry = "item")
+  public List<Item> items = new ArrayList<>();
+
+  static XmlItemPage of(int size) {
+    XmlItemPage page = new XmlItemPage();
+    for (int i = 0; i < size; i++) {
+      Item item = new Item();
+      item.id = "item-" + i;
+      item.name = "A moderately long item name with some unicode éè in it #" + i;
+      item.count = i;
+      page.items.add(item);
+    }
+    return page;
+  }
+
+  @XmlAccessorType(XmlAccessType.FIELD)
+  @Root(name = "item")
+  public static final class Item {
+    @XmlElement @Element public String id;
+    @XmlElement @Element public String name;
+    @XmlElement @Element public int count;
+  }
+}
@@ -19,11 +19,14 @@ import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
+import retrofit2.http.Streaming;
 
 /**
  * A {@linkplain Converter.Factory converter} which uses Gson for JSON.
@@ -32,6 +35,13 @@ import retrofit2.Retrofit;
  * all types. If you are mixing JSON serialization with something else (such as protocol buffers),
  * you must {@linkplain Retrofit.Builder#addConverterFactory(Converter.Factory) add this instance}
  * last to allow the other converters a chance to see their types.
+ * <p>
+ * Methods annotated with {@link Streaming @Streaming} may declare {@code Iterator<T>} as their
+ * response type to decode a top-level JSON array one element at a time. The iterator also
+ * implements {@link java.io.Closeable Closeable}; it closes the response body once the array is
+ * exhausted, and must be closed by the caller if it is abandoned early. I/O and decoding failures
+ * are thrown from {@code hasNext()} and {@code next()} as {@link com.google.gson.JsonIOException}
+ * and {@link com.google.gson.JsonSyntaxException}.
  */
 public final class GsonConverterFactory extends Converter.Factory {
   /**
@@ -49,18 +59,38 @@ public final class GsonConverterFactory extends Converter.Factory {
   @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
   public static GsonConverterFactory create(Gson gson) {
     if (gson == null) throw new NullPointerException("gson == null");
-    return new GsonConverterFactory(gson);
+    return new GsonConverterFactory(gson, false);
   }
 
   private final Gson gson;
+  private final boolean streaming;
 
-  private GsonConverterFactory(Gson gson) {
+  private GsonConverterFactory(Gson gson, boolean streaming) {
     this.gson = gson;
+    this.streaming = streaming;
+  }
+
+  /**
+   * Return a new factory whose request bodies encode straight into the network sink instead of
+   * into an intermediate buffer. This bounds the memory used by very large bodies, at the cost of
+   * sending them without a {@code Content-Length} and encoding again if the request is retried.
+   * Encoding failures are reported as {@link java.io.IOException IOExceptions} when the request is
+   * sent rather than when the call is created.
+   */
+  public GsonConverterFactory withStreamingRequestBodies() {
+    return new GsonConverterFactory(gson, true);
   }
 
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
       Retrofit retrofit) {
+    if (getRawType(type) == Iterator.class && isStreaming(annotations)) {
+      Type elementType = type instanceof ParameterizedType
+          ? getParameterUpperBound(0, (ParameterizedType) type)
+          : Object.class;
+      TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(elementType));
+      return new GsonStreamingResponseBodyConverter<>(gson, adapter);
+    }
     TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
     return new GsonResponseBodyConverter<>(gson, adapter);
   }
@@ -69,6 +99,15 @@ public final class GsonConverterFactory extends Converter.Factory {
   public Converter<?, RequestBody> requestBodyConverter(Type type,
       Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit) {
     TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
-    return new GsonRequestBodyConverter<>(gson, adapter);
+    return new GsonRequestBodyConverter<>(gson, adapter, streaming);
+  }
+
+  private static boolean isStreaming(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Streaming) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -22,9 +22,11 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import javax.annotation.Nullable;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.Buffer;
+import okio.BufferedSink;
 import retrofit2.Converter;
 
 final class GsonRequestBodyConverter<T> implements Converter<T, RequestBody> {
@@ -33,18 +35,82 @@ final class GsonRequestBodyConverter<T> implements Converter<T, RequestBody> {
 
   private final Gson gson;
   private final TypeAdapter<T> adapter;
+  private final boolean streaming;
 
-  GsonRequestBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+  GsonRequestBodyConverter(Gson gson, TypeAdapter<T> adapter, boolean streaming) {
     this.gson = gson;
     this.adapter = adapter;
+    this.streaming = streaming;
   }
 
   @Override public RequestBody convert(T value) throws IOException {
+    if (streaming) {
+      return new StreamingRequestBody<>(gson, adapter, value);
+    }
     Buffer buffer = new Buffer();
     Writer writer = new OutputStreamWriter(buffer.outputStream(), UTF_8);
     JsonWriter jsonWriter = gson.newJsonWriter(writer);
     adapter.write(jsonWriter, value);
     jsonWriter.close();
-    return RequestBody.create(MEDIA_TYPE, buffer.readByteString());
+    return new BufferRequestBody(buffer);
+  }
+
+  /**
+   * Writes the segments of an already-encoded buffer without first copying them into a byte
+   * array. The buffer is only read through shared copies so the body can be written repeatedly.
+   */
+  static final class BufferRequestBody extends RequestBody {
+    private final Buffer buffer;
+
+    BufferRequestBody(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override public long contentLength() {
+      return buffer.size();
+    }
+
+    @Override public void writeTo(BufferedSink sink) throws IOException {
+      buffer.copyTo(sink.buffer(), 0, buffer.size());
+      sink.emitCompleteSegments();
+    }
+  }
+
+  /**
+   * Encodes the value directly into the sink each time the body is written. The length is not
+   * known up front so the body is sent chunked.
+   */
+  static final class StreamingRequestBody<T> extends RequestBody {
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+    private final @Nullable T value;
+
+    StreamingRequestBody(Gson gson, TypeAdapter<T> adapter, @Nullable T value) {
+      this.gson = gson;
+      this.adapter = adapter;
+      this.value = value;
+    }
+
+    @Override public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override public void writeTo(BufferedSink sink) throws IOException {
+      Writer writer = new OutputStreamWriter(sink.outputStream(), UTF_8);
+      JsonWriter jsonWriter = gson.newJsonWriter(writer);
+      try {
+        adapter.write(jsonWriter, value);
+      } catch (RuntimeException e) {
+        // Encoding now happens while OkHttp writes the request. Report failures as I/O errors so
+        // that they reach the call's caller.
+        throw new IOException(e);
+      }
+      // Flush rather than close: the sink belongs to OkHttp.
+      jsonWriter.flush();
+    }
   }
 }
@@ -21,10 +21,22 @@ import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ByteString;
 import retrofit2.Converter;
 
 final class GsonResponseBodyConverter<T> implements Converter<ResponseBody, T> {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final ByteString UTF8_BOM = ByteString.decodeHex("efbbbf");
+  // Prefixes of the UTF-16 and UTF-32 byte order marks which ResponseBody.charStream() honors.
+  private static final ByteString UTF16_BE_BOM = ByteString.decodeHex("feff");
+  private static final ByteString UTF16_LE_BOM = ByteString.decodeHex("fffe");
+  private static final ByteString UTF32_BE_BOM = ByteString.decodeHex("0000feff");
+
   private final Gson gson;
   private final TypeAdapter<T> adapter;
 
@@ -34,8 +46,8 @@ final class GsonResponseBodyConverter<T> implements Converter<ResponseBody, T> {
   }
 
   @Override public T convert(ResponseBody value) throws IOException {
-    JsonReader jsonReader = gson.newJsonReader(value.charStream());
     try {
+      JsonReader jsonReader = gson.newJsonReader(reader(value));
       T result = adapter.read(jsonReader);
       if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
         throw new JsonIOException("JSON document was not fully consumed.");
@@ -45,4 +57,26 @@ final class GsonResponseBodyConverter<T> implements Converter<ResponseBody, T> {
       value.close();
     }
   }
+
+  /**
+   * Returns a reader which decodes UTF-8 directly from the body's source when the body is UTF-8,
+   * and the body's {@linkplain ResponseBody#charStream() char stream} otherwise.
+   */
+  static Reader reader(ResponseBody value) throws IOException {
+    MediaType contentType = value.contentType();
+    Charset charset = contentType != null ? contentType.charset() : null;
+    if (charset != null && !charset.equals(UTF_8)) {
+      return value.charStream();
+    }
+
+    BufferedSource source = value.source();
+    if (source.rangeEquals(0, UTF8_BOM)) {
+      source.skip(UTF8_BOM.size());
+    } else if (source.rangeEquals(0, UTF16_BE_BOM)
+        || source.rangeEquals(0, UTF16_LE_BOM)
+        || source.rangeEquals(0, UTF32_BE_BOM)) {
+      return value.charStream();
+    }
+    return new Utf8SourceReader(source);
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * Decodes a JSON array lazily, one element per call to {@link Iterator#next()}, so that only the
+ * current element is held in memory.
+ */
+final class GsonStreamingResponseBodyConverter<T>
+    implements Converter<ResponseBody, Iterator<T>> {
+  private final Gson gson;
+  private final TypeAdapter<T> adapter;
+
+  GsonStreamingResponseBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+    this.gson = gson;
+    this.adapter = adapter;
+  }
+
+  @Override public Iterator<T> convert(ResponseBody value) throws IOException {
+    try {
+      JsonReader jsonReader = gson.newJsonReader(GsonResponseBodyConverter.reader(value));
+      jsonReader.beginArray();
+      return new JsonArrayIterator<>(value, jsonReader, adapter);
+    } catch (IOException | RuntimeException e) {
+      value.close();
+      throw e;
+    }
+  }
+
+  /** Closes the body once the array is exhausted, decoding fails, or it is closed early. */
+  static final class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+    private final ResponseBody body;
+    private final JsonReader jsonReader;
+    private final TypeAdapter<T> adapter;
+    private boolean closed;
+
+    JsonArrayIterator(ResponseBody body, JsonReader jsonReader, TypeAdapter<T> adapter) {
+      this.body = body;
+      this.jsonReader = jsonReader;
+      this.adapter = adapter;
+    }
+
+    @Override public boolean hasNext() {
+      if (closed) return false;
+      try {
+        if (jsonReader.hasNext()) return true;
+        jsonReader.endArray();
+        if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+          throw new JsonIOException("JSON document was not fully consumed.");
+        }
+      } catch (MalformedJsonException e) {
+        close();
+        throw new JsonSyntaxException(e);
+      } catch (IOException e) {
+        close();
+        throw new JsonIOException(e);
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+      close();
+      return false;
+    }
+
+    @Override public T next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      try {
+        return adapter.read(jsonReader);
+      } catch (MalformedJsonException e) {
+        close();
+        throw new JsonSyntaxException(e);
+      } catch (IOException e) {
+        close();
+        throw new JsonIOException(e);
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    @Override public void close() {
+      if (closed) return;
+      closed = true;
+      body.close();
+    }
+  }
+}
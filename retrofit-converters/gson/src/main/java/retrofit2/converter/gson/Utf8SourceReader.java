@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.gson;
+
+import java.io.IOException;
+import java.io.Reader;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * A reader which decodes UTF-8 straight out of a {@link BufferedSource}'s buffer. Unlike
+ * {@link java.io.InputStreamReader} it keeps no byte or char buffers of its own, and ASCII, which
+ * makes up nearly all of a typical JSON document, is copied a byte at a time without going through
+ * a {@link java.nio.charset.CharsetDecoder}. Malformed input, including a sequence cut off by the
+ * end of the source, is replaced with U+FFFD.
+ */
+final class Utf8SourceReader extends Reader {
+  private final BufferedSource source;
+  /** The low surrogate of a supplementary code point which didn't fit in the last read, or 0. */
+  private char pendingLowSurrogate;
+
+  Utf8SourceReader(BufferedSource source) {
+    this.source = source;
+  }
+
+  @Override public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) return 0;
+
+    int count = 0;
+    if (pendingLowSurrogate != 0) {
+      cbuf[off + count++] = pendingLowSurrogate;
+      pendingLowSurrogate = 0;
+    }
+
+    Buffer buffer = source.buffer();
+    while (count < len) {
+      if (buffer.size() == 0L) {
+        // Return what is already decoded rather than blocking for more.
+        if (count > 0) break;
+        if (!source.request(1L)) return -1;
+      }
+
+      byte b = buffer.getByte(0L);
+      if (b >= 0) {
+        cbuf[off + count++] = (char) buffer.readByte();
+        continue;
+      }
+
+      int byteCount = utf8ByteCount(b);
+      if (!source.request(byteCount)) {
+        // The source ended mid-sequence. Replace it, as a CharsetDecoder would, rather than
+        // letting readUtf8CodePoint() throw.
+        buffer.skip(1L);
+        while (buffer.size() > 0L && (buffer.getByte(0L) & 0xc0) == 0x80) {
+          buffer.skip(1L);
+        }
+        cbuf[off + count++] = '\ufffd';
+        continue;
+      }
+
+      int codePoint = source.readUtf8CodePoint();
+      if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+        cbuf[off + count++] = (char) codePoint;
+      } else {
+        char high = (char) ((codePoint >>> 10)
+            + (Character.MIN_HIGH_SURROGATE - (Character.MIN_SUPPLEMENTARY_CODE_POINT >>> 10)));
+        char low = (char) ((codePoint & 0x3ff) + Character.MIN_LOW_SURROGATE);
+        cbuf[off + count++] = high;
+        if (count < len) {
+          cbuf[off + count++] = low;
+        } else {
+          pendingLowSurrogate = low;
+        }
+      }
+    }
+    return count;
+  }
+
+  /** Returns the length of the sequence {@code b} leads, or 1 if it cannot lead one. */
+  private static int utf8ByteCount(byte b) {
+    if ((b & 0xe0) == 0xc0) return 2;
+    if ((b & 0xf0) == 0xe0) return 3;
+    if ((b & 0xf8) == 0xf0) return 4;
+    return 1;
+  }
+
+  @Override public void close() throws IOException {
+    source.close();
+  }
+}
@@ -23,18 +23,26 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import retrofit2.Call;
+import retrofit2.Converter;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.POST;
+import retrofit2.http.Streaming;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -105,14 +113,16 @@ public final class GsonConverterFactoryTest {
     @POST("/") Call<AnImplementation> anImplementation(@Body AnImplementation impl);
     @POST("/") Call<AnInterface> anInterface(@Body AnInterface impl);
     @GET("/") Call<Value> value();
+    @Streaming @GET("/") Call<Iterator<AnImplementation>> stream();
   }
 
   @Rule public final MockWebServer server = new MockWebServer();
 
+  private Gson gson;
   private Service service;
 
   @Before public void setUp() {
-    Gson gson = new GsonBuilder()
+    gson = new GsonBuilder()
         .registerTypeAdapter(AnInterface.class, new AnInterfaceAdapter())
         .registerTypeAdapter(Value.class, Value.BROKEN_ADAPTER)
         .setLenient()
@@ -179,4 +189,121 @@ public final class GsonConverterFactoryTest {
       assertThat(e).hasMessage("JSON document was not fully consumed.");
     }
   }
+
+  @Test public void utf8BomSkipped() throws IOException {
+    Buffer body = new Buffer()
+        .write(ByteString.decodeHex("EFBBBF"))
+        .writeUtf8("{\"theName\":\"value\"}");
+    server.enqueue(new MockResponse().setBody(body));
+
+    Response<AnImplementation> response =
+        service.anImplementation(new AnImplementation("value")).execute();
+    assertThat(response.body().theName).isEqualTo("value");
+  }
+
+  @Test public void utf8MultiByteCharacters() throws IOException {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/json; charset=UTF-8")
+        .setBody("{\"theName\":\"h\u00e9llo \u4e16\u754c \ud83d\ude00\"}"));
+
+    Response<AnImplementation> response =
+        service.anImplementation(new AnImplementation("value")).execute();
+    assertThat(response.body().theName).isEqualTo("h\u00e9llo \u4e16\u754c \ud83d\ude00");
+  }
+
+  @Test public void nonUtf8CharsetHonored() throws IOException {
+    Buffer body = new Buffer()
+        .writeString("{\"theName\":\"h\u00e9llo\"}", Charset.forName("UTF-16BE"));
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/json; charset=UTF-16BE")
+        .setBody(body));
+
+    Response<AnImplementation> response =
+        service.anImplementation(new AnImplementation("value")).execute();
+    assertThat(response.body().theName).isEqualTo("h\u00e9llo");
+  }
+
+  @Test public void utf16BomHonoredWithoutCharset() throws IOException {
+    Buffer body = new Buffer()
+        .write(ByteString.decodeHex("FEFF"))
+        .writeString("{\"theName\":\"h\u00e9llo\"}", Charset.forName("UTF-16BE"));
+    server.enqueue(new MockResponse().setBody(body));
+
+    Response<AnImplementation> response =
+        service.anImplementation(new AnImplementation("value")).execute();
+    assertThat(response.body().theName).isEqualTo("h\u00e9llo");
+  }
+
+  @Test public void requestBodyHasLengthAndCanBeWrittenTwice() throws IOException {
+    RequestBody body = convertRequestBody(GsonConverterFactory.create(gson));
+    assertThat(body.contentLength()).isEqualTo(19);
+
+    Buffer first = new Buffer();
+    body.writeTo(first);
+    Buffer second = new Buffer();
+    body.writeTo(second);
+    assertThat(first.readUtf8()).isEqualTo("{\"theName\":\"value\"}");
+    assertThat(second.readUtf8()).isEqualTo("{\"theName\":\"value\"}");
+  }
+
+  @Test public void streamingRequestBodyCanBeWrittenTwice() throws IOException {
+    RequestBody body =
+        convertRequestBody(GsonConverterFactory.create(gson).withStreamingRequestBodies());
+    assertThat(body.contentLength()).isEqualTo(-1);
+
+    Buffer first = new Buffer();
+    body.writeTo(first);
+    Buffer second = new Buffer();
+    body.writeTo(second);
+    assertThat(first.readUtf8()).isEqualTo("{\"theName\":\"value\"}");
+    assertThat(second.readUtf8()).isEqualTo("{\"theName\":\"value\"}");
+  }
+
+  @Test public void streamingRequestBody() throws IOException, InterruptedException {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(GsonConverterFactory.create(gson).withStreamingRequestBodies())
+        .build();
+    Service service = retrofit.create(Service.class);
+    server.enqueue(new MockResponse().setBody("{\"name\":\"value\"}"));
+
+    Response<AnInterface> response = service.anInterface(new AnImplementation("value")).execute();
+    assertThat(response.body().getName()).isEqualTo("value");
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getBody().readUtf8()).isEqualTo("{\"name\":\"value\"}");
+    assertThat(request.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
+    assertThat(request.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+  }
+
+  @SuppressWarnings("unchecked") // Converter is created for AnImplementation.
+  private static RequestBody convertRequestBody(GsonConverterFactory factory) throws IOException {
+    Converter<AnImplementation, RequestBody> converter =
+        (Converter<AnImplementation, RequestBody>) factory.requestBodyConverter(
+            AnImplementation.class, new Annotation[0], new Annotation[0], null);
+    return converter.convert(new AnImplementation("value"));
+  }
+
+  @Test public void streamingIterator() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"theName\":\"a\"},{\"theName\":\"b\"}]"));
+
+    Iterator<AnImplementation> iterator = service.stream().execute().body();
+    assertThat(iterator.hasNext()).isTrue();
+    assertThat(iterator.next().theName).isEqualTo("a");
+    assertThat(iterator.next().theName).isEqualTo("b");
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test public void streamingIteratorTruncated() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"theName\":\"a\"},{\"theName\""));
+
+    Iterator<AnImplementation> iterator = service.stream().execute().body();
+    assertThat(iterator.next().theName).isEqualTo("a");
+    try {
+      iterator.next();
+      fail();
+    } catch (JsonIOException expected) {
+    }
+    assertThat(iterator.hasNext()).isFalse();
+  }
 }
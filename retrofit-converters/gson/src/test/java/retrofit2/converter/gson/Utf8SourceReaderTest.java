@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.gson;
+
+import java.io.IOException;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class Utf8SourceReaderTest {
+  @Test public void readsAsciiAndMultiByteCharacters() throws IOException {
+    String text = "a\u00e9\u4e16\ud83d\ude00z";
+    Utf8SourceReader reader = new Utf8SourceReader(new Buffer().writeUtf8(text));
+
+    char[] chars = new char[16];
+    assertThat(reader.read(chars, 0, chars.length)).isEqualTo(text.length());
+    assertThat(new String(chars, 0, text.length())).isEqualTo(text);
+    assertThat(reader.read(chars, 0, chars.length)).isEqualTo(-1);
+  }
+
+  @Test public void surrogatePairSplitAcrossReads() throws IOException {
+    Utf8SourceReader reader = new Utf8SourceReader(new Buffer().writeUtf8("\ud83d\ude00"));
+
+    char[] chars = new char[1];
+    assertThat(reader.read(chars, 0, 1)).isEqualTo(1);
+    assertThat(chars[0]).isEqualTo('\ud83d');
+    assertThat(reader.read(chars, 0, 1)).isEqualTo(1);
+    assertThat(chars[0]).isEqualTo('\ude00');
+    assertThat(reader.read(chars, 0, 1)).isEqualTo(-1);
+  }
+
+  @Test public void malformedInputIsReplaced() throws IOException {
+    Utf8SourceReader reader =
+        new Utf8SourceReader(new Buffer().write(ByteString.decodeHex("61ff62")));
+
+    char[] chars = new char[3];
+    assertThat(reader.read(chars, 0, 3)).isEqualTo(3);
+    assertThat(new String(chars)).isEqualTo("a\ufffdb");
+  }
+
+  @Test public void truncatedSequenceAtEndIsReplaced() throws IOException {
+    // "a" followed by the first two bytes of the three byte encoding of U+4E16.
+    Utf8SourceReader reader =
+        new Utf8SourceReader(new Buffer().write(ByteString.decodeHex("61e4b8")));
+
+    char[] chars = new char[4];
+    assertThat(reader.read(chars, 0, 4)).isEqualTo(2);
+    assertThat(new String(chars, 0, 2)).isEqualTo("a\ufffd");
+    assertThat(reader.read(chars, 0, 4)).isEqualTo(-1);
+  }
+}
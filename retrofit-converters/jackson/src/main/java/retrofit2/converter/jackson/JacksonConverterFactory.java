@@ -20,11 +20,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
+import retrofit2.http.Streaming;
 
 /**
  * A {@linkplain Converter.Factory converter} which uses Jackson.
@@ -33,6 +36,11 @@ import retrofit2.Retrofit;
  * handle all types. If you are mixing JSON serialization with something else (such as protocol
  * buffers), you must {@linkplain Retrofit.Builder#addConverterFactory(Converter.Factory) add this
  * instance} last to allow the other converters a chance to see their types.
+ * <p>
+ * Methods annotated with {@link Streaming @Streaming} may declare {@code Iterator<T>} as their
+ * response type to decode a top-level JSON array one element at a time. The iterator is a
+ * {@link com.fasterxml.jackson.databind.MappingIterator MappingIterator}; it closes the response
+ * body once the array is exhausted, and must be closed by the caller if it is abandoned early.
  */
 public final class JacksonConverterFactory extends Converter.Factory {
   /** Create an instance using a default {@link ObjectMapper} instance for conversion. */
@@ -44,18 +52,36 @@ public final class JacksonConverterFactory extends Converter.Factory {
   @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
   public static JacksonConverterFactory create(ObjectMapper mapper) {
     if (mapper == null) throw new NullPointerException("mapper == null");
-    return new JacksonConverterFactory(mapper);
+    return new JacksonConverterFactory(mapper, false);
   }
 
   private final ObjectMapper mapper;
+  private final boolean streaming;
 
-  private JacksonConverterFactory(ObjectMapper mapper) {
+  private JacksonConverterFactory(ObjectMapper mapper, boolean streaming) {
     this.mapper = mapper;
+    this.streaming = streaming;
+  }
+
+  /**
+   * Return a new factory whose request bodies encode straight into the network sink instead of
+   * into an intermediate buffer. This bounds the memory used by very large bodies, at the cost of
+   * sending them without a {@code Content-Length} and encoding again if the request is retried.
+   */
+  public JacksonConverterFactory withStreamingRequestBodies() {
+    return new JacksonConverterFactory(mapper, true);
   }
 
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
       Retrofit retrofit) {
+    if (getRawType(type) == Iterator.class && isStreaming(annotations)) {
+      Type elementType = type instanceof ParameterizedType
+          ? getParameterUpperBound(0, (ParameterizedType) type)
+          : Object.class;
+      JavaType javaType = mapper.getTypeFactory().constructType(elementType);
+      return new JacksonStreamingResponseBodyConverter<>(mapper.readerFor(javaType));
+    }
     JavaType javaType = mapper.getTypeFactory().constructType(type);
     ObjectReader reader = mapper.readerFor(javaType);
     return new JacksonResponseBodyConverter<>(reader);
@@ -66,6 +92,15 @@ public final class JacksonConverterFactory extends Converter.Factory {
       Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit) {
     JavaType javaType = mapper.getTypeFactory().constructType(type);
     ObjectWriter writer = mapper.writerFor(javaType);
-    return new JacksonRequestBodyConverter<>(writer);
+    return new JacksonRequestBodyConverter<>(writer, streaming);
+  }
+
+  private static boolean isStreaming(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Streaming) {
+        return true;
+      }
+    }
+    return false;
   }
 }
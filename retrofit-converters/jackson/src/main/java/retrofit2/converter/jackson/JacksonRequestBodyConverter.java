@@ -15,23 +15,82 @@
  */
 package retrofit2.converter.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import java.io.IOException;
+import javax.annotation.Nullable;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
 import retrofit2.Converter;
 
 final class JacksonRequestBodyConverter<T> implements Converter<T, RequestBody> {
   private static final MediaType MEDIA_TYPE = MediaType.get("application/json; charset=UTF-8");
 
   private final ObjectWriter adapter;
+  private final boolean streaming;
 
-  JacksonRequestBodyConverter(ObjectWriter adapter) {
+  JacksonRequestBodyConverter(ObjectWriter adapter, boolean streaming) {
     this.adapter = adapter;
+    this.streaming = streaming;
   }
 
   @Override public RequestBody convert(T value) throws IOException {
-    byte[] bytes = adapter.writeValueAsBytes(value);
-    return RequestBody.create(MEDIA_TYPE, bytes);
+    if (streaming) {
+      return new StreamingRequestBody(adapter, value);
+    }
+    // Encode into segments rather than the single contiguous array writeValueAsBytes() allocates.
+    Buffer buffer = new Buffer();
+    adapter.writeValue(buffer.outputStream(), value);
+    return new BufferRequestBody(buffer);
+  }
+
+  /** Writes shared copies of an already-encoded buffer's segments, so it may be written again. */
+  static final class BufferRequestBody extends RequestBody {
+    private final Buffer buffer;
+
+    BufferRequestBody(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override public long contentLength() {
+      return buffer.size();
+    }
+
+    @Override public void writeTo(BufferedSink sink) throws IOException {
+      buffer.copyTo(sink.buffer(), 0, buffer.size());
+      sink.emitCompleteSegments();
+    }
+  }
+
+  /** Encodes the value directly into the sink each time the body is written. */
+  static final class StreamingRequestBody extends RequestBody {
+    private final ObjectWriter adapter;
+    private final @Nullable Object value;
+
+    StreamingRequestBody(ObjectWriter adapter, @Nullable Object value) {
+      this.adapter = adapter;
+      this.value = value;
+    }
+
+    @Override public MediaType contentType() {
+      return MEDIA_TYPE;
+    }
+
+    @Override public void writeTo(BufferedSink sink) throws IOException {
+      JsonGenerator generator = adapter.getFactory().createGenerator(sink.outputStream());
+      // The sink belongs to OkHttp. Closing the generator only flushes it.
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      try {
+        adapter.writeValue(generator, value);
+      } finally {
+        generator.close();
+      }
+    }
   }
 }
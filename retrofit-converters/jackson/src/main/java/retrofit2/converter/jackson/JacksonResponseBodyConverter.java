@@ -17,10 +17,14 @@ package retrofit2.converter.jackson;
 
 import com.fasterxml.jackson.databind.ObjectReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 
 final class JacksonResponseBodyConverter<T> implements Converter<ResponseBody, T> {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
   private final ObjectReader adapter;
 
   JacksonResponseBodyConverter(ObjectReader adapter) {
@@ -29,6 +33,13 @@ final class JacksonResponseBodyConverter<T> implements Converter<ResponseBody, T
 
   @Override public T convert(ResponseBody value) throws IOException {
     try {
+      MediaType contentType = value.contentType();
+      Charset charset = contentType != null ? contentType.charset() : null;
+      if (charset == null || charset.equals(UTF_8)) {
+        // Jackson's byte parser decodes UTF-8 itself, detecting BOMs and UTF-16/32 the way
+        // charStream() would, and is considerably faster than parsing chars.
+        return adapter.readValue(value.byteStream());
+      }
       return adapter.readValue(value.charStream());
     } finally {
       value.close();
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.jackson;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * Decodes a JSON array lazily with a {@link com.fasterxml.jackson.databind.MappingIterator}, so
+ * that only the current element is held in memory.
+ */
+final class JacksonStreamingResponseBodyConverter<T>
+    implements Converter<ResponseBody, Iterator<T>> {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final ObjectReader adapter;
+
+  JacksonStreamingResponseBodyConverter(ObjectReader adapter) {
+    this.adapter = adapter;
+  }
+
+  @Override public Iterator<T> convert(ResponseBody value) throws IOException {
+    try {
+      // The iterator closes the stream, and with it the body, once it is exhausted or closed.
+      MediaType contentType = value.contentType();
+      Charset charset = contentType != null ? contentType.charset() : null;
+      if (charset == null || charset.equals(UTF_8)) {
+        return adapter.<T>readValues(value.byteStream());
+      }
+      return adapter.<T>readValues(value.charStream());
+    } catch (IOException | RuntimeException e) {
+      value.close();
+      throw e;
+    }
+  }
+}
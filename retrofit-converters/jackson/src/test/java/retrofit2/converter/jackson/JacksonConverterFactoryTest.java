@@ -27,9 +27,14 @@ import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import java.io.IOException;
+import java.io.Closeable;
+import java.nio.charset.Charset;
+import java.util.Iterator;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -38,7 +43,9 @@ import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 import retrofit2.http.Body;
+import retrofit2.http.GET;
 import retrofit2.http.POST;
+import retrofit2.http.Streaming;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -104,17 +111,19 @@ public class JacksonConverterFactoryTest {
   interface Service {
     @POST("/") Call<AnImplementation> anImplementation(@Body AnImplementation impl);
     @POST("/") Call<AnInterface> anInterface(@Body AnInterface impl);
+    @Streaming @GET("/") Call<Iterator<AnInterface>> stream();
   }
 
   @Rule public final MockWebServer server = new MockWebServer();
 
+  private ObjectMapper mapper;
   private Service service;
 
   @Before public void setUp() {
     SimpleModule module = new SimpleModule();
     module.addSerializer(AnInterface.class, new AnInterfaceSerializer());
     module.addDeserializer(AnInterface.class, new AnInterfaceDeserializer());
-    ObjectMapper mapper = new ObjectMapper();
+    mapper = new ObjectMapper();
     mapper.registerModule(module);
     mapper.configure(MapperFeature.AUTO_DETECT_GETTERS, false);
     mapper.configure(MapperFeature.AUTO_DETECT_SETTERS, false);
@@ -156,4 +165,70 @@ public class JacksonConverterFactoryTest {
     assertThat(request.getBody().readUtf8()).isEqualTo("{\"name\":\"value\"}");
     assertThat(request.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
   }
+
+  @Test public void requestBodyHasContentLength() throws IOException, InterruptedException {
+    server.enqueue(new MockResponse().setBody("{\"name\":\"value\"}"));
+
+    service.anInterface(new AnImplementation("value")).execute();
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Length")).isEqualTo("16");
+  }
+
+  @Test public void streamingRequestBody() throws IOException, InterruptedException {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(JacksonConverterFactory.create(mapper).withStreamingRequestBodies())
+        .build();
+    Service service = retrofit.create(Service.class);
+    server.enqueue(new MockResponse().setBody("{\"name\":\"value\"}"));
+
+    Response<AnInterface> response = service.anInterface(new AnImplementation("value")).execute();
+    assertThat(response.body().getName()).isEqualTo("value");
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getBody().readUtf8()).isEqualTo("{\"name\":\"value\"}");
+    assertThat(request.getHeader("Content-Type")).isEqualTo("application/json; charset=UTF-8");
+    assertThat(request.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+  }
+
+  @Test public void utf8BomSkipped() throws IOException {
+    Buffer body = new Buffer()
+        .write(ByteString.decodeHex("EFBBBF"))
+        .writeUtf8("{\"name\":\"h\u00e9llo\"}");
+    server.enqueue(new MockResponse().setBody(body));
+
+    Response<AnInterface> response = service.anInterface(new AnImplementation("value")).execute();
+    assertThat(response.body().getName()).isEqualTo("h\u00e9llo");
+  }
+
+  @Test public void nonUtf8CharsetHonored() throws IOException {
+    Buffer body = new Buffer()
+        .writeString("{\"name\":\"h\u00e9llo\"}", Charset.forName("ISO-8859-1"));
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/json; charset=ISO-8859-1")
+        .setBody(body));
+
+    Response<AnInterface> response = service.anInterface(new AnImplementation("value")).execute();
+    assertThat(response.body().getName()).isEqualTo("h\u00e9llo");
+  }
+
+  @Test public void streamingIterator() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"name\":\"a\"},{\"name\":\"b\"}]"));
+
+    Iterator<AnInterface> iterator = service.stream().execute().body();
+    assertThat(iterator.hasNext()).isTrue();
+    assertThat(iterator.next().getName()).isEqualTo("a");
+    assertThat(iterator.next().getName()).isEqualTo("b");
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test public void streamingIteratorClosedEarly() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"name\":\"a\"},{\"name\":\"b\"}]"));
+
+    Iterator<AnInterface> iterator = service.stream().execute().body();
+    assertThat(iterator.next().getName()).isEqualTo("a");
+    ((Closeable) iterator).close();
+    assertThat(iterator.hasNext()).isFalse();
+  }
 }
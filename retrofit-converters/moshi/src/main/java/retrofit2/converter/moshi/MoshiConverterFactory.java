@@ -16,17 +16,21 @@
 package retrofit2.converter.moshi;
 
 import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
 import com.squareup.moshi.JsonQualifier;
 import com.squareup.moshi.Moshi;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
+import retrofit2.http.Streaming;
 
 import static java.util.Collections.unmodifiableSet;
 
@@ -41,6 +45,12 @@ import static java.util.Collections.unmodifiableSet;
  * Any {@link JsonQualifier @JsonQualifier}-annotated annotations on the parameter will be used
  * when looking up a request body converter and those on the method will be used when looking up a
  * response body converter.
+ * <p>
+ * Methods annotated with {@link Streaming @Streaming} may declare {@code Iterator<T>} as their
+ * response type to decode a top-level JSON array one element at a time. The iterator also
+ * implements {@link java.io.Closeable Closeable}; it closes the response body once the array is
+ * exhausted, and must be closed by the caller if it is abandoned early. I/O and decoding failures
+ * are thrown from {@code hasNext()} and {@code next()} as {@link JsonDataException}.
  */
 public final class MoshiConverterFactory extends Converter.Factory {
   /** Create an instance using a default {@link Moshi} instance for conversion. */
@@ -88,7 +98,14 @@ public final class MoshiConverterFactory extends Converter.Factory {
   @Override
   public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
       Retrofit retrofit) {
-    JsonAdapter<?> adapter = moshi.adapter(type, jsonAnnotations(annotations));
+    boolean streaming = getRawType(type) == Iterator.class && isStreaming(annotations);
+    Type adapterType = type;
+    if (streaming) {
+      adapterType = type instanceof ParameterizedType
+          ? getParameterUpperBound(0, (ParameterizedType) type)
+          : Object.class;
+    }
+    JsonAdapter<?> adapter = moshi.adapter(adapterType, jsonAnnotations(annotations));
     if (lenient) {
       adapter = adapter.lenient();
     }
@@ -98,6 +115,9 @@ public final class MoshiConverterFactory extends Converter.Factory {
     if (serializeNulls) {
       adapter = adapter.serializeNulls();
     }
+    if (streaming) {
+      return new MoshiStreamingResponseBodyConverter<>(adapter);
+    }
     return new MoshiResponseBodyConverter<>(adapter);
   }
 
@@ -116,6 +136,15 @@ public final class MoshiConverterFactory extends Converter.Factory {
     return new MoshiRequestBodyConverter<>(adapter);
   }
 
+  private static boolean isStreaming(Annotation[] annotations) {
+    for (Annotation annotation : annotations) {
+      if (annotation instanceof Streaming) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static Set<? extends Annotation> jsonAnnotations(Annotation[] annotations) {
     Set<Annotation> result = null;
     for (Annotation annotation : annotations) {
@@ -28,6 +28,7 @@ import java.lang.annotation.Annotation;
 import java.lang.annotation.Retention;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
+import java.util.Iterator;
 import java.util.Set;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
@@ -43,6 +44,7 @@ import retrofit2.Retrofit;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.POST;
+import retrofit2.http.Streaming;
 
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -128,6 +130,7 @@ public final class MoshiConverterFactoryTest {
     @POST("/") Call<AnImplementation> anImplementation(@Body AnImplementation impl);
     @POST("/") Call<AnInterface> anInterface(@Body AnInterface impl);
     @GET("/") Call<Value> value();
+    @Streaming @GET("/") Call<Iterator<AnInterface>> stream();
 
     @POST("/") @Qualifier @NonQualifer //
     Call<String> annotations(@Body @Qualifier @NonQualifer String body);
@@ -298,4 +301,38 @@ public final class MoshiConverterFactoryTest {
       assertThat(e).hasMessage("JSON document was not fully consumed.");
     }
   }
+
+  @Test public void streamingIterator() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"name\":\"a\"},{\"name\":\"b\"}]"));
+
+    Iterator<AnInterface> iterator = service.stream().execute().body();
+    assertThat(iterator.hasNext()).isTrue();
+    assertThat(iterator.next().getName()).isEqualTo("a");
+    assertThat(iterator.next().getName()).isEqualTo("b");
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test public void streamingIteratorSkipsUtf8Bom() throws IOException {
+    Buffer body = new Buffer()
+        .write(ByteString.decodeHex("EFBBBF"))
+        .writeUtf8("[{\"name\":\"a\"}]");
+    server.enqueue(new MockResponse().setBody(body));
+
+    Iterator<AnInterface> iterator = service.stream().execute().body();
+    assertThat(iterator.next().getName()).isEqualTo("a");
+    assertThat(iterator.hasNext()).isFalse();
+  }
+
+  @Test public void streamingIteratorTrailingData() throws IOException {
+    server.enqueue(new MockResponse().setBody("[{\"name\":\"a\"}] []"));
+
+    Iterator<AnInterface> iterator = service.stream().execute().body();
+    assertThat(iterator.next().getName()).isEqualTo("a");
+    try {
+      iterator.hasNext();
+      fail();
+    } catch (JsonDataException expected) {
+    }
+    assertThat(iterator.hasNext()).isFalse();
+  }
 }
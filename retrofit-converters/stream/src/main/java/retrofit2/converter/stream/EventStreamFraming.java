@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.stream;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * Frames a {@code text/event-stream} of server-sent events: one record per event, made of the
+ * event's {@code data} lines joined by {@code \n}. Comments, events without data, the other fields
+ * ({@code event}, {@code id} and {@code retry}), and a trailing event which is not terminated by
+ * a blank line are ignored, as the HTML specification's event stream interpretation requires.
+ */
+final class EventStreamFraming extends RecordStream.Framing {
+  private static final ByteString UTF8_BOM = ByteString.decodeHex("EFBBBF");
+  private static final ByteString DATA = ByteString.encodeUtf8("data");
+
+  private boolean started;
+
+  @Override @Nullable Buffer next(BufferedSource source) throws IOException {
+    if (!started) {
+      started = true;
+      if (source.rangeEquals(0, UTF8_BOM)) {
+        source.skip(UTF8_BOM.size());
+      }
+    }
+
+    Buffer data = null;
+    Buffer line = new Buffer();
+    while (readLine(source, line)) {
+      if (line.size() == 0L) {
+        // A blank line dispatches the event, if it has any data.
+        if (data != null) return data;
+        continue;
+      }
+
+      if (line.rangeEquals(0, DATA)
+          && (line.size() == DATA.size() || line.getByte(DATA.size()) == ':')) {
+        line.skip(Math.min(line.size(), DATA.size() + 1L));
+        if (line.size() > 0L && line.getByte(0) == ' ') {
+          line.skip(1L);
+        }
+        if (data == null) {
+          data = new Buffer();
+        } else {
+          data.writeByte('\n');
+        }
+        data.writeAll(line);
+      } else {
+        line.clear();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.stream;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * Frames newline-delimited JSON: one record per line. Blank lines are skipped and both
+ * {@code \n} and {@code \r\n} terminate a line.
+ */
+final class NdjsonFraming extends RecordStream.Framing {
+  private static final ByteString UTF8_BOM = ByteString.decodeHex("EFBBBF");
+
+  private boolean started;
+
+  @Override @Nullable Buffer next(BufferedSource source) throws IOException {
+    if (!started) {
+      started = true;
+      if (source.rangeEquals(0, UTF8_BOM)) {
+        source.skip(UTF8_BOM.size());
+      }
+    }
+
+    while (true) {
+      Buffer line = new Buffer();
+      if (!readLine(source, line)) return null;
+      if (line.size() > 0L) return line;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import retrofit2.Converter;
+
+/**
+ * A lazily decoded sequence of records read from a streaming response body. Each record is read
+ * from the network only when {@link #hasNext()} or {@link #next()} needs it, and is decoded by the
+ * converter which {@link retrofit2.Retrofit} would use for a body of the record type.
+ * <p>
+ * The stream holds the response body open. It is closed once the last record has been read, and
+ * must be {@linkplain #close() closed} by the caller if it is abandoned early. Canceling the
+ * {@link retrofit2.Call Call} which produced the stream aborts any read in progress with an
+ * {@link IOException}.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class RecordStream<T> implements Closeable {
+  private final ResponseBody body;
+  private final Framing framing;
+  private final Converter<ResponseBody, T> converter;
+  private final MediaType recordType;
+
+  private @Nullable Buffer next;
+  private boolean closed;
+
+  RecordStream(ResponseBody body, Framing framing, Converter<ResponseBody, T> converter,
+      MediaType recordType) {
+    this.body = body;
+    this.framing = framing;
+    this.converter = converter;
+    this.recordType = recordType;
+  }
+
+  /** Returns true if another record follows, reading from the network until one is framed. */
+  public boolean hasNext() throws IOException {
+    if (next != null) return true;
+    if (closed) return false;
+
+    try {
+      next = framing.next(body.source());
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+    if (next == null) {
+      close();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the next record. This may be null if the element converter decodes the record as
+   * null.
+   *
+   * @throws NoSuchElementException if the stream has no more records.
+   */
+  public @Nullable T next() throws IOException {
+    if (!hasNext()) throw new NoSuchElementException();
+    Buffer record = next;
+    next = null;
+
+    try {
+      return converter.convert(ResponseBody.create(recordType, record.size(), record));
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override public void close() {
+    if (closed) return;
+    closed = true;
+    next = null;
+    body.close();
+  }
+
+  /** Splits a body into records. Each record is returned as a buffer of its bytes. */
+  abstract static class Framing {
+    /** Returns the next record, or null if the source is exhausted. */
+    abstract @Nullable Buffer next(BufferedSource source) throws IOException;
+
+    /**
+     * Reads the next line into {@code sink}, excluding the line terminator. Returns false if the
+     * source was already exhausted.
+     */
+    static boolean readLine(BufferedSource source, Buffer sink) throws IOException {
+      long newline = source.indexOf((byte) '\n');
+      if (newline == -1L) {
+        if (source.exhausted()) return false;
+        source.readAll(sink);
+        return true;
+      }
+
+      long length = newline;
+      if (length > 0L && source.buffer().getByte(length - 1L) == '\r') {
+        length--;
+      }
+      source.readFully(sink, length);
+      source.skip(newline - length + 1L);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.stream;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain Converter.Factory converter} which reads streaming response bodies as a
+ * {@link RecordStream} of records.
+ * <pre><code>
+ * interface EventService {
+ *   &#64;GET("events")
+ *   Call&lt;RecordStream&lt;Event&gt;&gt; events();
+ * }
+ * </code></pre>
+ * Bodies whose content type is {@code text/event-stream} are read as server-sent events, with each
+ * event's data as a record. All other bodies are read as newline-delimited JSON, with each line as
+ * a record.
+ * <p>
+ * Records are decoded by the converter which the {@link Retrofit} instance would otherwise use for
+ * a body of the record type, so this factory must be added before that converter.
+ */
+public final class RecordStreamConverterFactory extends Converter.Factory {
+  private static final MediaType NDJSON_RECORD = MediaType.get("application/json; charset=UTF-8");
+  private static final MediaType EVENT_RECORD = MediaType.get("text/plain; charset=UTF-8");
+
+  public static RecordStreamConverterFactory create() {
+    return new RecordStreamConverterFactory();
+  }
+
+  private RecordStreamConverterFactory() {
+  }
+
+  @Override public @Nullable Converter<ResponseBody, ?> responseBodyConverter(Type type,
+      Annotation[] annotations, Retrofit retrofit) {
+    if (getRawType(type) != RecordStream.class) {
+      return null;
+    }
+    if (!(type instanceof ParameterizedType)) {
+      throw new IllegalStateException("RecordStream return type must be parameterized"
+          + " as RecordStream<Foo> or RecordStream<? extends Foo>");
+    }
+    Type recordType = getParameterUpperBound(0, (ParameterizedType) type);
+    Converter<ResponseBody, ?> recordConverter =
+        retrofit.nextResponseBodyConverter(this, recordType, annotations);
+    return new RecordStreamConverter<>(recordConverter);
+  }
+
+  static final class RecordStreamConverter<T>
+      implements Converter<ResponseBody, RecordStream<T>> {
+    private final Converter<ResponseBody, T> recordConverter;
+
+    RecordStreamConverter(Converter<ResponseBody, T> recordConverter) {
+      this.recordConverter = recordConverter;
+    }
+
+    @Override public RecordStream<T> convert(ResponseBody value) throws IOException {
+      MediaType contentType = value.contentType();
+      if (contentType != null
+          && "text".equals(contentType.type())
+          && "event-stream".equals(contentType.subtype())) {
+        return new RecordStream<>(value, new EventStreamFraming(), recordConverter, EVENT_RECORD);
+      }
+      return new RecordStream<>(value, new NdjsonFraming(), recordConverter, NDJSON_RECORD);
+    }
+  }
+}
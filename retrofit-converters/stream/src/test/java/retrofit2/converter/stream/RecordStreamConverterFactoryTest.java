@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package retrofit2.converter.stream;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.NoSuchElementException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.http.GET;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public final class RecordStreamConverterFactoryTest {
+  interface Service {
+    @GET("/") Call<RecordStream<String>> records();
+    @SuppressWarnings("rawtypes") // Testing raw type handling.
+    @GET("/") Call<RecordStream> raw();
+  }
+
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  private Service service;
+
+  @Before public void setUp() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(RecordStreamConverterFactory.create())
+        .addConverterFactory(ScalarsConverterFactory.create())
+        .build();
+    service = retrofit.create(Service.class);
+  }
+
+  @Test public void newlineDelimited() throws IOException {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "application/x-ndjson")
+        .setBody("\ufeff{\"a\":1}\n\n{\"b\":2}\r\n{\"c\":3}"));
+
+    RecordStream<String> records = service.records().execute().body();
+    assertThat(records.next()).isEqualTo("{\"a\":1}");
+    assertThat(records.next()).isEqualTo("{\"b\":2}");
+    assertThat(records.hasNext()).isTrue();
+    assertThat(records.next()).isEqualTo("{\"c\":3}");
+    assertThat(records.hasNext()).isFalse();
+    try {
+      records.next();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  @Test public void serverSentEvents() throws IOException {
+    server.enqueue(new MockResponse()
+        .setHeader("Content-Type", "text/event-stream; charset=utf-8")
+        .setBody(""
+            + ": a comment\n"
+            + "data: one\n"
+            + "\n"
+            + "event: update\n"
+            + "id: 2\n"
+            + "data: two\n"
+            + "data:three\n"
+            + "\n"
+            + "event: no-data\n"
+            + "\n"
+            + "data\n"
+            + "\n"
+            + "data: unterminated\n"));
+
+    RecordStream<String> records = service.records().execute().body();
+    assertThat(records.next()).isEqualTo("one");
+    assertThat(records.next()).isEqualTo("two\nthree");
+    assertThat(records.next()).isEqualTo("");
+    assertThat(records.hasNext()).isFalse();
+  }
+
+  @Test public void closedEarly() throws IOException {
+    server.enqueue(new MockResponse().setBody("one\ntwo\n"));
+
+    RecordStream<String> records = service.records().execute().body();
+    assertThat(records.next()).isEqualTo("one");
+    records.close();
+    assertThat(records.hasNext()).isFalse();
+  }
+
+  @Test public void cancelAbortsRead() throws IOException {
+    server.enqueue(new MockResponse()
+        .setBody("one\ntwo\n")
+        .throttleBody(4, 1, SECONDS));
+
+    Call<RecordStream<String>> call = service.records();
+    RecordStream<String> records = call.execute().body();
+    assertThat(records.next()).isEqualTo("one");
+
+    call.cancel();
+    try {
+      records.hasNext();
+      fail();
+    } catch (IOException expected) {
+    }
+    assertThat(records.hasNext()).isFalse();
+  }
+
+  @Test public void rawTypeThrows() {
+    try {
+      service.raw();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause()).hasMessage("RecordStream return type must be parameterized"
+          + " as RecordStream<Foo> or RecordStream<? extends Foo>");
+    }
+  }
+
+  @Test public void otherTypesIgnored() {
+    RecordStreamConverterFactory factory = RecordStreamConverterFactory.create();
+    assertThat(factory.responseBodyConverter(String.class, new Annotation[0], null)).isNull();
+  }
+}
@@ -19,8 +19,8 @@ import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import javax.annotation.concurrent.GuardedBy;
 import okhttp3.Request;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -35,8 +35,7 @@ final class BehaviorCall<T> implements Call<T> {
 
   private volatile Future<?> task;
   volatile boolean canceled;
-  @GuardedBy("this")
-  private boolean executed;
+  private final AtomicBoolean executed = new AtomicBoolean();
 
   BehaviorCall(NetworkBehavior behavior, ExecutorService backgroundExecutor, Call<T> delegate) {
     this.behavior = behavior;
@@ -57,9 +56,8 @@ final class BehaviorCall<T> implements Call<T> {
   @Override public void enqueue(final Callback<T> callback) {
     if (callback == null) throw new NullPointerException("callback == null");
 
-    synchronized (this) {
-      if (executed) throw new IllegalStateException("Already executed");
-      executed = true;
+    if (!executed.compareAndSet(false, true)) {
+      throw new IllegalStateException("Already executed");
     }
     task = backgroundExecutor.submit(new Runnable() {
       boolean delaySleep() {
@@ -106,8 +104,8 @@ final class BehaviorCall<T> implements Call<T> {
     });
   }
 
-  @Override public synchronized boolean isExecuted() {
-    return executed;
+  @Override public boolean isExecuted() {
+    return executed.get();
   }
 
   @Override public Response<T> execute() throws IOException {
@@ -19,12 +19,42 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import javax.annotation.Nullable;
 import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
 
+/**
+ * Adapts service methods which return {@link CompletableFuture}. Retrofit adds an instance of
+ * this on Java 8 and Android API 24 and newer, which completes futures on OkHttp's threads.
+ * <p>
+ * Add an instance from {@link #create(Executor)} to complete futures on an executor of your
+ * choosing instead. Dependent stages which are not {@code async}, such as those added by
+ * {@link CompletableFuture#thenApply thenApply}, then run in the same task on that executor
+ * rather than each being dispatched to it.
+ * <p>
+ * Completing a future yourself, as {@code orTimeout} and {@code completeOnTimeout} do on Java 9
+ * and newer, cancels its call.
+ */
 @IgnoreJRERequirement // Only added when CompletableFuture is available (Java 8+ / Android API 24+).
-final class CompletableFutureCallAdapterFactory extends CallAdapter.Factory {
-  static final CallAdapter.Factory INSTANCE = new CompletableFutureCallAdapterFactory();
+public final class CompletableFutureCallAdapterFactory extends CallAdapter.Factory {
+  static final CallAdapter.Factory INSTANCE = new CompletableFutureCallAdapterFactory(null);
+
+  /**
+   * Create an instance which completes futures, and so runs their dependent stages, on
+   * {@code executor}.
+   */
+  @SuppressWarnings("ConstantConditions") // Guarding public API nullability.
+  public static CompletableFutureCallAdapterFactory create(Executor executor) {
+    if (executor == null) throw new NullPointerException("executor == null");
+    return new CompletableFutureCallAdapterFactory(executor);
+  }
+
+  private final @Nullable Executor executor;
+
+  private CompletableFutureCallAdapterFactory(@Nullable Executor executor) {
+    this.executor = executor;
+  }
 
   @Override public @Nullable CallAdapter<?, ?> get(
       Type returnType, Annotation[] annotations, Retrofit retrofit) {
@@ -39,7 +69,7 @@ final class CompletableFutureCallAdapterFactory extends CallAdapter.Factory {
 
     if (getRawType(innerType) != Response.class) {
       // Generic type is not Response<T>. Use it for body-only adapter.
-      return new BodyCallAdapter<>(innerType);
+      return new BodyCallAdapter<>(innerType, executor);
     }
 
     // Generic type is Response<T>. Extract T and create the Response version of the adapter.
@@ -48,45 +78,34 @@ final class CompletableFutureCallAdapterFactory extends CallAdapter.Factory {
           + " as Response<Foo> or Response<? extends Foo>");
     }
     Type responseType = getParameterUpperBound(0, (ParameterizedType) innerType);
-    return new ResponseCallAdapter<>(responseType);
+    return new ResponseCallAdapter<>(responseType, executor);
   }
 
   @IgnoreJRERequirement
   private static final class BodyCallAdapter<R> implements CallAdapter<R, CompletableFuture<R>> {
     private final Type responseType;
+    private final @Nullable Executor executor;
 
-    BodyCallAdapter(Type responseType) {
+    BodyCallAdapter(Type responseType, @Nullable Executor executor) {
       this.responseType = responseType;
+      this.executor = executor;
     }
 
     @Override public Type responseType() {
       return responseType;
     }
 
-    @Override public CompletableFuture<R> adapt(final Call<R> call) {
-      final CompletableFuture<R> future = new CompletableFuture<R>() {
-        @Override public boolean cancel(boolean mayInterruptIfRunning) {
-          if (mayInterruptIfRunning) {
-            call.cancel();
-          }
-          return super.cancel(mayInterruptIfRunning);
-        }
-      };
-
-      call.enqueue(new Callback<R>() {
-        @Override public void onResponse(Call<R> call, Response<R> response) {
+    @Override public CompletableFuture<R> adapt(Call<R> call) {
+      CallFuture<R, R> future = new CallFuture<R, R>(call, executor) {
+        @Override void onResponse(Response<R> response) {
           if (response.isSuccessful()) {
-            future.complete(response.body());
+            deliver(response.body(), null);
           } else {
-            future.completeExceptionally(new HttpException(response));
+            deliver(null, new HttpException(response));
           }
         }
-
-        @Override public void onFailure(Call<R> call, Throwable t) {
-          future.completeExceptionally(t);
-        }
-      });
-
+      };
+      call.enqueue(future);
       return future;
     }
   }
@@ -95,36 +114,106 @@ final class CompletableFutureCallAdapterFactory extends CallAdapter.Factory {
   private static final class ResponseCallAdapter<R>
       implements CallAdapter<R, CompletableFuture<Response<R>>> {
     private final Type responseType;
+    private final @Nullable Executor executor;
 
-    ResponseCallAdapter(Type responseType) {
+    ResponseCallAdapter(Type responseType, @Nullable Executor executor) {
       this.responseType = responseType;
+      this.executor = executor;
     }
 
     @Override public Type responseType() {
       return responseType;
     }
 
-    @Override public CompletableFuture<Response<R>> adapt(final Call<R> call) {
-      final CompletableFuture<Response<R>> future = new CompletableFuture<Response<R>>() {
-        @Override public boolean cancel(boolean mayInterruptIfRunning) {
-          if (mayInterruptIfRunning) {
-            call.cancel();
-          }
-          return super.cancel(mayInterruptIfRunning);
+    @Override public CompletableFuture<Response<R>> adapt(Call<R> call) {
+      CallFuture<R, Response<R>> future = new CallFuture<R, Response<R>>(call, executor) {
+        @Override void onResponse(Response<R> response) {
+          deliver(response, null);
         }
       };
+      call.enqueue(future);
+      return future;
+    }
+  }
 
-      call.enqueue(new Callback<R>() {
-        @Override public void onResponse(Call<R> call, Response<R> response) {
-          future.complete(response);
-        }
+  /**
+   * A future which is also its call's callback and, when completing on an executor, the task
+   * which completes it. This saves allocating either for each call.
+   */
+  @IgnoreJRERequirement
+  private abstract static class CallFuture<R, T> extends CompletableFuture<T>
+      implements Callback<R>, Runnable {
+    private final Call<R> call;
+    private final @Nullable Executor executor;
+    // Written before the executor is handed this task, which publishes them to it.
+    private @Nullable T value;
+    private @Nullable Throwable failure;
+
+    CallFuture(Call<R> call, @Nullable Executor executor) {
+      this.call = call;
+      this.executor = executor;
+    }
 
-        @Override public void onFailure(Call<R> call, Throwable t) {
-          future.completeExceptionally(t);
-        }
-      });
+    abstract void onResponse(Response<R> response);
 
-      return future;
+    @Override public final void onResponse(Call<R> call, Response<R> response) {
+      onResponse(response);
+    }
+
+    @Override public final void onFailure(Call<R> call, Throwable t) {
+      deliver(null, t);
+    }
+
+    final void deliver(@Nullable T value, @Nullable Throwable failure) {
+      if (executor == null) {
+        finish(value, failure);
+        return;
+      }
+      this.value = value;
+      this.failure = failure;
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        super.completeExceptionally(e);
+      }
+    }
+
+    @Override public final void run() {
+      finish(value, failure);
+    }
+
+    private void finish(@Nullable T value, @Nullable Throwable failure) {
+      // Bypass the overrides below, which treat completion as coming from the caller.
+      if (failure != null) {
+        super.completeExceptionally(failure);
+      } else {
+        super.complete(value);
+      }
+    }
+
+    @Override public boolean complete(T value) {
+      // The caller no longer wants the call's result, as when completeOnTimeout elapses.
+      boolean completed = super.complete(value);
+      if (completed) {
+        call.cancel();
+      }
+      return completed;
+    }
+
+    @Override public boolean completeExceptionally(Throwable ex) {
+      // The caller no longer wants the call's result, as when orTimeout elapses.
+      boolean completed = super.completeExceptionally(ex);
+      if (completed) {
+        call.cancel();
+      }
+      return completed;
+    }
+
+    @Override public boolean cancel(boolean mayInterruptIfRunning) {
+      if (mayInterruptIfRunning) {
+        call.cancel();
+      }
+      return super.cancel(mayInterruptIfRunning);
     }
   }
 }
@@ -18,7 +18,9 @@ package retrofit2;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import okhttp3.Request;
 
@@ -48,6 +50,85 @@ final class ExecutorCallAdapterFactory extends CallAdapter.Factory {
     };
   }
 
+  /**
+   * Gathers callbacks into a lock-free queue and runs everything queued in one task on
+   * {@code delegate}, rather than posting one task per callback. Callbacks run in the order they
+   * were submitted, so a call's callback still runs after anything submitted before it.
+   */
+  static final class CallbackBatcher implements Executor, Runnable {
+    final Executor delegate;
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    /** The number of callbacks submitted but not yet run. Non-zero while a drain is posted. */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    CallbackBatcher(Executor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public void execute(Runnable callback) {
+      queue.offer(checkNotNull(callback, "callback == null"));
+      if (pending.getAndIncrement() == 0) {
+        try {
+          delegate.execute(this);
+        } catch (RuntimeException | Error e) {
+          // Take this callback back so that the rejection reaches its caller, as it would have
+          // without batching.
+          queue.remove(callback);
+          if (pending.decrementAndGet() != 0) {
+            repost();
+          }
+          throw e;
+        }
+      }
+    }
+
+    /**
+     * Posts a drain for the pending callbacks, which have none. If the executor rejects it those
+     * callbacks are discarded, as the executor would have rejected each of them, so that the next
+     * callback posts a drain of its own.
+     */
+    private void repost() {
+      while (true) {
+        try {
+          delegate.execute(this);
+          return;
+        } catch (RuntimeException | Error e) {
+          int discarded = pending.get();
+          for (int i = 0; i < discarded; i++) {
+            queue.poll();
+          }
+          if (pending.addAndGet(-discarded) == 0) {
+            return;
+          }
+          // More callbacks arrived while discarding. They expect a drain, so try again.
+        }
+      }
+    }
+
+    @Override public void run() {
+      int missed = pending.get();
+      while (true) {
+        for (int i = 0; i < missed; i++) {
+          // Each increment follows its offer, so the queue holds at least 'missed' callbacks.
+          Runnable callback = queue.poll();
+          try {
+            callback.run();
+          } catch (RuntimeException | Error e) {
+            // Hand the remaining callbacks to a new task before letting the executor see this.
+            if (pending.addAndGet(-(i + 1)) != 0) {
+              repost();
+            }
+            throw e;
+          }
+        }
+        missed = pending.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+  }
+
   static final class ExecutorCallbackCall<T> implements Call<T> {
     final Executor callbackExecutor;
     final Call<T> delegate;
@@ -16,7 +16,7 @@
 package retrofit2;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -27,7 +27,8 @@ import static retrofit2.Utils.checkNotNull;
  * that was called and the arguments to the method.
  *
  * <p>Retrofit automatically adds an invocation to each OkHttp request as a tag. You can retrieve
- * the invocation in an OkHttp interceptor for metrics and monitoring.
+ * the invocation in an OkHttp interceptor for metrics and monitoring. If nothing reads the tag it
+ * can be turned off with {@link Retrofit.Builder#invocationTags(boolean)}.
  *
  * <pre><code>
  * class InvocationLogger implements Interceptor {
@@ -53,16 +54,19 @@ public final class Invocation {
   public static Invocation of(Method method, List<?> arguments) {
     checkNotNull(method, "method == null");
     checkNotNull(arguments, "arguments == null");
-    return new Invocation(method, new ArrayList<>(arguments)); // Defensive copy.
+    return new Invocation(method, arguments.toArray()); // Defensive copy.
   }
 
   private final Method method;
-  private final List<?> arguments;
+  private final Object[] arguments;
 
-  /** Trusted constructor assumes ownership of {@code arguments}. */
-  Invocation(Method method, List<?> arguments) {
+  /**
+   * Trusted constructor assumes ownership of {@code arguments}. The array is wrapped rather than
+   * copied, so it must not be modified afterwards.
+   */
+  Invocation(Method method, Object[] arguments) {
     this.method = method;
-    this.arguments = Collections.unmodifiableList(arguments);
+    this.arguments = arguments;
   }
 
   public Method method() {
@@ -70,11 +74,11 @@ public final class Invocation {
   }
 
   public List<?> arguments() {
-    return arguments;
+    return Collections.unmodifiableList(Arrays.asList(arguments));
   }
 
   @Override public String toString() {
     return String.format("%s.%s() %s",
-        method.getDeclaringClass().getName(), method.getName(), arguments);
+        method.getDeclaringClass().getName(), method.getName(), Arrays.toString(arguments));
   }
 }
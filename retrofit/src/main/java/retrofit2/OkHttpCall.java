@@ -16,9 +16,10 @@
 package retrofit2;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 
 import okhttp3.MediaType;
 import okhttp3.Request;
@@ -48,16 +49,17 @@ final class OkHttpCall<T> implements Call<T> {
     private final okhttp3.Call.Factory callFactory;
     private final Converter<ResponseBody, T> responseConverter;
 
-    private volatile boolean canceled;
+    /**
+     * 请求的全部可变状态：是否已执行、是否已取消、OkHttp的Call对象或创建它时的异常。
+     * 状态对象不可变，每次变化都通过 CAS 替换，所以 cancel 和 isCanceled 永远不会等待正在创建请求的线程
+     */
+    private final AtomicReference<State> state = new AtomicReference<>(State.INITIAL);
 
-    @GuardedBy("this")
-    private @Nullable
-    okhttp3.Call rawCall;
-    @GuardedBy("this") // Either a RuntimeException, non-fatal Error, or IOException.
-    private @Nullable
-    Throwable creationFailure;
-    @GuardedBy("this")
-    private boolean executed;
+    /**
+     * 保证 OkHttp的Call对象 只被创建一次，转换器和 callFactory 不会被重复调用。
+     * 只有创建请求时才持有这个锁，cancel 和 isCanceled 从不获取它
+     */
+    private final ReentrantLock creationLock = new ReentrantLock();
 
     OkHttpCall(RequestFactory requestFactory, Object[] args,
                okhttp3.Call.Factory callFactory, Converter<ResponseBody, T> responseConverter) {
@@ -75,11 +77,9 @@ final class OkHttpCall<T> implements Call<T> {
     }
 
     @Override
-    public synchronized Request request() {
-        okhttp3.Call call = rawCall;
-        if (call != null) {
-            return call.request();
-        }
+    public Request request() {
+        State created = created();
+        Throwable creationFailure = created.creationFailure;
         if (creationFailure != null) {
             if (creationFailure instanceof IOException) {
                 throw new RuntimeException("Unable to create request.", creationFailure);
@@ -89,16 +89,7 @@ final class OkHttpCall<T> implements Call<T> {
                 throw (Error) creationFailure;
             }
         }
-        try {
-            return (rawCall = createRawCall()).request();
-        } catch (RuntimeException | Error e) {
-            throwIfFatal(e); // Do not assign a fatal error to creationFailure.
-            creationFailure = e;
-            throw e;
-        } catch (IOException e) {
-            creationFailure = e;
-            throw new RuntimeException("Unable to create request.", e);
-        }
+        return created.rawCall.request();
     }
 
     /**
@@ -108,33 +99,20 @@ final class OkHttpCall<T> implements Call<T> {
     public void enqueue(final Callback<T> callback) {
         checkNotNull(callback, "callback == null");
 
-        okhttp3.Call call;
-        Throwable failure;
-
-        synchronized (this) {
-            // 检查 该 请求是否被执行过，如果执行过则抛出异常
-            if (executed) throw new IllegalStateException("Already executed.");
-            executed = true;
+        // 检查 该 请求是否被执行过，如果执行过则抛出异常
+        markExecuted();
 
-            call = rawCall;
-            failure = creationFailure;
-            if (call == null && failure == null) {
-                try {
-                    // 创建 实际的OkHttp对象
-                    call = rawCall = createRawCall();
-                } catch (Throwable t) {
-                    throwIfFatal(t);
-                    failure = creationFailure = t;
-                }
-            }
-        }
+        // 获取或创建 实际的OkHttp对象
+        State created = created();
+        okhttp3.Call call = created.rawCall;
+        Throwable failure = created.creationFailure;
 
         if (failure != null) {
             callback.onFailure(this, failure);
             return;
         }
 
-        if (canceled) {
+        if (state.get().canceled) {
             call.cancel();
         }
 
@@ -178,45 +156,31 @@ final class OkHttpCall<T> implements Call<T> {
     }
 
     @Override
-    public synchronized boolean isExecuted() {
-        return executed;
+    public boolean isExecuted() {
+        return state.get().executed;
     }
 
     @Override
     public Response<T> execute() throws IOException {
-        okhttp3.Call call;
-
-        synchronized (this) {
-            // 检查 该 请求是否被执行过，如果执行过则抛出异常
-            if (executed) throw new IllegalStateException("Already executed.");
-            executed = true;
-
-            if (creationFailure != null) {
-                if (creationFailure instanceof IOException) {
-                    throw (IOException) creationFailure;
-                } else if (creationFailure instanceof RuntimeException) {
-                    throw (RuntimeException) creationFailure;
-                } else {
-                    throw (Error) creationFailure;
-                }
-            }
+        // 检查 该 请求是否被执行过，如果执行过则抛出异常
+        markExecuted();
 
-            call = rawCall;
-            if (call == null) {
-                try {
-                    // 创建 实际的OkHttp对象
-                    call = rawCall = createRawCall();
-                } catch (IOException | RuntimeException | Error e) {
-                    throwIfFatal(e); //  Do not assign a fatal error to creationFailure.
-                    creationFailure = e;
-                    throw e;
-                }
+        // 获取或创建 实际的OkHttp对象
+        State created = created();
+        Throwable creationFailure = created.creationFailure;
+        if (creationFailure != null) {
+            if (creationFailure instanceof IOException) {
+                throw (IOException) creationFailure;
+            } else if (creationFailure instanceof RuntimeException) {
+                throw (RuntimeException) creationFailure;
+            } else {
+                throw (Error) creationFailure;
             }
         }
+        okhttp3.Call call = created.rawCall;
 
-        // 获取到对象锁，并创建了OkHttp的Call对象，然后进行是否被取消的判断
         // 如果请求被取消了，那么调用OkHttp的Call对象 取消 网络请求
-        if (canceled) {
+        if (state.get().canceled) {
             // 取消 请求
             call.cancel();
         }
@@ -226,6 +190,57 @@ final class OkHttpCall<T> implements Call<T> {
         return parseResponse(call.execute());
     }
 
+    /**
+     * 将状态标记为已执行，如果已经执行过则抛出异常
+     */
+    private void markExecuted() {
+        while (true) {
+            State current = state.get();
+            if (current.executed) throw new IllegalStateException("Already executed.");
+            if (state.compareAndSet(current, current.executed())) return;
+        }
+    }
+
+    /**
+     * 返回已经创建了 OkHttp的Call对象（或记录了创建失败的异常）的状态，必要时在当前线程创建。
+     * 多个线程同时调用时，只有一个线程创建，其余线程等待它的结果
+     */
+    private State created() {
+        State current = state.get();
+        if (current.isCreated()) {
+            return current;
+        }
+
+        creationLock.lock();
+        try {
+            current = state.get();
+            if (current.isCreated()) {
+                return current;
+            }
+
+            okhttp3.Call call = null;
+            Throwable failure = null;
+            try {
+                // 创建 实际的OkHttp对象
+                call = createRawCall();
+            } catch (Throwable t) {
+                throwIfFatal(t); // Do not assign a fatal error to creationFailure.
+                failure = t;
+            }
+
+            // The lock only excludes other creators. Executed and canceled may still change.
+            while (true) {
+                current = state.get();
+                State created = current.created(call, failure);
+                if (state.compareAndSet(current, created)) {
+                    return created;
+                }
+            }
+        } finally {
+            creationLock.unlock();
+        }
+    }
+
     /**
      * 创建实际的OkHttp对象
      */
@@ -285,12 +300,15 @@ final class OkHttpCall<T> implements Call<T> {
     }
 
     public void cancel() {
-        canceled = true;
-
-        okhttp3.Call call;
-        synchronized (this) {
-            call = rawCall;
+        while (true) {
+            State current = state.get();
+            if (current.canceled || state.compareAndSet(current, current.canceled())) {
+                break;
+            }
         }
+
+        // 如果 OkHttp的Call对象 还没有创建，创建它的线程会看到取消的状态并取消它
+        okhttp3.Call call = state.get().rawCall;
         if (call != null) {
             call.cancel();
         }
@@ -298,11 +316,46 @@ final class OkHttpCall<T> implements Call<T> {
 
     @Override
     public boolean isCanceled() {
-        if (canceled) {
-            return true;
+        State current = state.get();
+        return current.canceled || (current.rawCall != null && current.rawCall.isCanceled());
+    }
+
+    /**
+     * 不可变的调用状态，状态的每次变化都会创建一个新的对象
+     */
+    static final class State {
+        static final State INITIAL = new State(false, false, null, null);
+
+        final boolean executed;
+        final boolean canceled;
+        final @Nullable
+        okhttp3.Call rawCall;
+        // Either a RuntimeException, non-fatal Error, or IOException.
+        final @Nullable
+        Throwable creationFailure;
+
+        private State(boolean executed, boolean canceled, @Nullable okhttp3.Call rawCall,
+                      @Nullable Throwable creationFailure) {
+            this.executed = executed;
+            this.canceled = canceled;
+            this.rawCall = rawCall;
+            this.creationFailure = creationFailure;
         }
-        synchronized (this) {
-            return rawCall != null && rawCall.isCanceled();
+
+        State executed() {
+            return new State(true, canceled, rawCall, creationFailure);
+        }
+
+        State canceled() {
+            return new State(executed, true, rawCall, creationFailure);
+        }
+
+        boolean isCreated() {
+            return rawCall != null || creationFailure != null;
+        }
+
+        State created(@Nullable okhttp3.Call rawCall, @Nullable Throwable creationFailure) {
+            return new State(executed, canceled, rawCall, creationFailure);
         }
     }
 
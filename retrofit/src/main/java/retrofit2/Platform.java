@@ -21,11 +21,13 @@ import android.os.Looper;
 
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
@@ -77,6 +79,26 @@ class Platform {
         return null;
     }
 
+    /**
+     * 通过反射创建 每个任务一个虚拟线程 的执行器，这样编译目标仍可以是旧版本的 Java。需要 Java 21 及以上
+     */
+    Executor virtualThreadPerTaskExecutor() {
+        Method factory;
+        try {
+            factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer.", e);
+        }
+        try {
+            return (Executor) factory.invoke(null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to create a virtual thread executor.", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create a virtual thread executor.",
+                    e.getCause());
+        }
+    }
+
     List<? extends CallAdapter.Factory> defaultCallAdapterFactories(
             @Nullable Executor callbackExecutor) {
         if (callbackExecutor != null) {
@@ -16,7 +16,6 @@
 package retrofit2;
 
 import java.io.IOException;
-import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import okhttp3.FormBody;
 import okhttp3.Headers;
@@ -33,27 +32,24 @@ final class RequestBuilder {
       { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
   private static final String PATH_SEGMENT_ALWAYS_ENCODE_SET = " \"<>^`{}|\\?#";
 
-  /**
-   * Matches strings that contain {@code .} or {@code ..} as a complete path segment. This also
-   * matches dots in their percent-encoded form, {@code %2E}.
-   *
-   * <p>It is okay to have these strings within a larger path segment (like {@code a..z} or {@code
-   * index.html}) but when alone they have a special meaning. A single dot resolves to no path
-   * segment so {@code /one/./three/} becomes {@code /one/three/}. A double-dot pops the preceding
-   * directory, so {@code /one/../three/} becomes {@code /three/}.
-   *
-   * <p>We forbid these in Retrofit paths because they're likely to have the unintended effect.
-   * For example, passing {@code ..} to {@code DELETE /account/book/{isbn}/} yields {@code DELETE
-   * /account/}.
-   */
-  private static final Pattern PATH_TRAVERSAL = Pattern.compile("(.*/)?(\\.|%2e|%2E){1,2}(/.*)?");
-
   private final String method;
 
   private final HttpUrl baseUrl;
   private @Nullable String relativeUrl;
+  /** The base URL and relative URL combined ahead of time when the latter is static. */
+  private final @Nullable HttpUrl resolvedUrl;
   private @Nullable HttpUrl.Builder urlBuilder;
 
+  /**
+   * The relative URL pre-split into literal text (even indices) and path parameter names (odd
+   * indices), or null if the relative URL has no path parameters.
+   */
+  private final @Nullable String[] relativeUrlTemplate;
+  /** Canonicalized values for the parameter indices of the template. Lazily allocated. */
+  private @Nullable String[] pathValues;
+  /** The values as they were passed in, for error messages. */
+  private @Nullable String[] rawPathValues;
+
   private final Request.Builder requestBuilder;
   private @Nullable MediaType contentType;
 
@@ -63,11 +59,14 @@ final class RequestBuilder {
   private @Nullable RequestBody body;
 
   RequestBuilder(String method, HttpUrl baseUrl,
-      @Nullable String relativeUrl, @Nullable Headers headers, @Nullable MediaType contentType,
+      @Nullable String relativeUrl, @Nullable String[] relativeUrlTemplate,
+      @Nullable HttpUrl resolvedUrl, @Nullable Headers headers, @Nullable MediaType contentType,
       boolean hasBody, boolean isFormEncoded, boolean isMultipart) {
     this.method = method;
     this.baseUrl = baseUrl;
     this.relativeUrl = relativeUrl;
+    this.relativeUrlTemplate = relativeUrlTemplate;
+    this.resolvedUrl = resolvedUrl;
     this.requestBuilder = new Request.Builder();
     this.contentType = contentType;
     this.hasBody = hasBody;
@@ -103,17 +102,110 @@ final class RequestBuilder {
   }
 
   void addPathParam(String name, String value, boolean encoded) {
-    if (relativeUrl == null) {
-      // The relative URL is cleared when the first query parameter is set.
+    String[] template = relativeUrlTemplate;
+    if (template == null || relativeUrl == null) {
+      // Path parameters are only parsed for templated URLs, and always precede query parameters.
       throw new AssertionError();
     }
     String replacement = canonicalizeForPath(value, encoded);
-    String newRelativeUrl = relativeUrl.replace("{" + name + "}", replacement);
-    if (PATH_TRAVERSAL.matcher(newRelativeUrl).matches()) {
-      throw new IllegalArgumentException(
-          "@Path parameters shouldn't perform path traversal ('.' or '..'): " + value);
+
+    String[] pathValues = this.pathValues;
+    String[] rawPathValues = this.rawPathValues;
+    if (pathValues == null || rawPathValues == null) {
+      pathValues = this.pathValues = new String[template.length];
+      rawPathValues = this.rawPathValues = new String[template.length];
+    }
+    for (int i = 1; i < template.length; i += 2) {
+      if (pathValues[i] == null && template[i].equals(name)) {
+        pathValues[i] = replacement;
+        rawPathValues[i] = value;
+      }
+    }
+  }
+
+  /**
+   * Substitutes the path parameter values into the relative URL template in a single pass and
+   * checks the path segments they touch for traversal.
+   */
+  private void expandRelativeUrl() {
+    String[] pathValues = this.pathValues;
+    String[] rawPathValues = this.rawPathValues;
+    String[] template = relativeUrlTemplate;
+    String relativeUrl = this.relativeUrl;
+    if (pathValues == null || rawPathValues == null || template == null || relativeUrl == null) {
+      return; // No path parameters were added.
+    }
+    this.pathValues = null;
+    this.rawPathValues = null;
+
+    StringBuilder builder = new StringBuilder(relativeUrl.length() + 16 * (template.length / 2));
+    for (int i = 0; i < template.length; i++) {
+      if ((i & 1) == 0) {
+        builder.append(template[i]);
+      } else if (pathValues[i] != null) {
+        builder.append(pathValues[i]);
+      } else {
+        builder.append('{').append(template[i]).append('}'); // Left as-is without a value.
+      }
     }
-    relativeUrl = newRelativeUrl;
+    String expanded = builder.toString();
+
+    for (int i = 0, pos = 0; i < template.length; i++) {
+      if ((i & 1) == 0) {
+        pos += template[i].length();
+      } else if (pathValues[i] != null) {
+        int end = pos + pathValues[i].length();
+        if (isPathTraversal(expanded, pos, end)) {
+          throw new IllegalArgumentException(
+              "@Path parameters shouldn't perform path traversal ('.' or '..'): "
+                  + rawPathValues[i]);
+        }
+        pos = end;
+      } else {
+        pos += template[i].length() + 2;
+      }
+    }
+
+    this.relativeUrl = expanded;
+  }
+
+  /**
+   * Returns true if a complete path segment overlapping {@code url[start..end)} is {@code .} or
+   * {@code ..}. This also matches dots in their percent-encoded form, {@code %2E}.
+   *
+   * <p>It is okay to have these strings within a larger path segment (like {@code a..z} or {@code
+   * index.html}) but when alone they have a special meaning. A single dot resolves to no path
+   * segment so {@code /one/./three/} becomes {@code /one/three/}. A double-dot pops the preceding
+   * directory, so {@code /one/../three/} becomes {@code /three/}.
+   *
+   * <p>We forbid these in Retrofit paths because they're likely to have the unintended effect.
+   * For example, passing {@code ..} to {@code DELETE /account/book/{isbn}/} yields {@code DELETE
+   * /account/}.
+   */
+  private static boolean isPathTraversal(String url, int start, int end) {
+    int limit = url.indexOf('/', end);
+    if (limit == -1) limit = url.length();
+    for (int i = url.lastIndexOf('/', start - 1) + 1; i <= limit; ) {
+      int segmentEnd = url.indexOf('/', i);
+      if (segmentEnd == -1 || segmentEnd > limit) segmentEnd = limit;
+      if (isDotSegment(url, i, segmentEnd)) return true;
+      i = segmentEnd + 1;
+    }
+    return false;
+  }
+
+  private static boolean isDotSegment(String url, int start, int end) {
+    int dots = 0;
+    for (int i = start; i < end; dots++) {
+      if (url.charAt(i) == '.') {
+        i++;
+      } else if (i + 3 <= end && url.regionMatches(true, i, "%2e", 0, 3)) {
+        i += 3;
+      } else {
+        return false;
+      }
+    }
+    return dots == 1 || dots == 2;
   }
 
   private static String canonicalizeForPath(String input, boolean alreadyEncoded) {
@@ -167,8 +259,13 @@ final class RequestBuilder {
 
   void addQueryParam(String name, @Nullable String value, boolean encoded) {
     if (relativeUrl != null) {
-      // Do a one-time combination of the built relative URL and the base URL.
-      urlBuilder = baseUrl.newBuilder(relativeUrl);
+      expandRelativeUrl();
+
+      // Do a one-time combination of the built relative URL and the base URL, unless that was
+      // already done when the service method was parsed.
+      urlBuilder = resolvedUrl != null
+          ? resolvedUrl.newBuilder()
+          : baseUrl.newBuilder(relativeUrl);
       if (urlBuilder == null) {
         throw new IllegalArgumentException(
             "Malformed URL. Base: " + baseUrl + ", Relative: " + relativeUrl);
@@ -213,7 +310,12 @@ final class RequestBuilder {
     HttpUrl.Builder urlBuilder = this.urlBuilder;
     if (urlBuilder != null) {
       url = urlBuilder.build();
+    } else if (resolvedUrl != null) {
+      // A static relative URL with no query parameters. Nothing left to combine.
+      url = resolvedUrl;
     } else {
+      expandRelativeUrl();
+
       // No query parameters triggered builder creation, just combine the relative URL and base URL.
       //noinspection ConstantConditions Non-null if urlBuilder is null.
       url = baseUrl.resolve(relativeUrl);
@@ -93,6 +93,19 @@ final class RequestFactory {
     @Nullable
     private final String relativeUrl;
 
+    /**
+     * 预先切分好的相对地址模板：偶数下标为字面文本，奇数下标为路径参数名，相对地址中没有路径参数时为空
+     */
+    @Nullable
+    private final String[] relativeUrlTemplate;
+
+    /**
+     * 相对地址与 baseUrl 拼接后的完整地址。只有相对地址是静态的（没有路径参数）时才会预先计算，
+     * 这样每次请求就不需要重新解析 baseUrl 和相对地址
+     */
+    @Nullable
+    private final HttpUrl resolvedUrl;
+
     /**
      * 请求头部信息
      */
@@ -111,17 +124,28 @@ final class RequestFactory {
     private final boolean isMultipart;
     private final ParameterHandler<?>[] parameterHandlers;
 
+    /**
+     * 是否给每个请求添加 {@link Invocation} 标签
+     */
+    private final boolean invocationTags;
+
     RequestFactory(Builder builder) {
         method = builder.method;
         baseUrl = builder.retrofit.baseUrl;
         httpMethod = builder.httpMethod;
         relativeUrl = builder.relativeUrl;
+        relativeUrlTemplate = builder.relativeUrlTemplate;
+        // A malformed URL is left unresolved so that each request reports it, as before.
+        resolvedUrl = relativeUrl != null && relativeUrlTemplate == null
+                ? baseUrl.resolve(relativeUrl)
+                : null;
         headers = builder.headers;
         contentType = builder.contentType;
         hasBody = builder.hasBody;
         isFormEncoded = builder.isFormEncoded;
         isMultipart = builder.isMultipart;
         parameterHandlers = builder.parameterHandlers;
+        invocationTags = builder.retrofit.invocationTags;
     }
 
     /**
@@ -141,17 +165,19 @@ final class RequestFactory {
         }
 
         RequestBuilder requestBuilder = new RequestBuilder(httpMethod, baseUrl, relativeUrl,
-                headers, contentType, hasBody, isFormEncoded, isMultipart);
+                relativeUrlTemplate, resolvedUrl, headers, contentType, hasBody, isFormEncoded,
+                isMultipart);
 
-        List<Object> argumentList = new ArrayList<>(argumentCount);
         for (int p = 0; p < argumentCount; p++) {
-            argumentList.add(args[p]);
             handlers[p].apply(requestBuilder, args[p]);
         }
 
-        return requestBuilder.get()
-                .tag(Invocation.class, new Invocation(method, argumentList))
-                .build();
+        okhttp3.Request.Builder builder = requestBuilder.get();
+        if (invocationTags) {
+            // The arguments array belongs to this call and is never modified, so it is not copied.
+            builder.tag(Invocation.class, new Invocation(method, args));
+        }
+        return builder.build();
     }
 
     /**
@@ -193,6 +219,8 @@ final class RequestFactory {
         @Nullable
         Set<String> relativeUrlParamNames;
         @Nullable
+        String[] relativeUrlTemplate;
+        @Nullable
         ParameterHandler<?>[] parameterHandlers;
 
         Builder(Retrofit retrofit, Method method) {
@@ -308,6 +336,7 @@ final class RequestFactory {
 
             this.relativeUrl = value;
             this.relativeUrlParamNames = parsePathParameters(value);
+            this.relativeUrlTemplate = parseRelativeUrlTemplate(value);
         }
 
         private Headers parseHeaders(String[] headers) {
@@ -793,6 +822,31 @@ final class RequestFactory {
             return patterns;
         }
 
+        /**
+         * Splits {@code relativeUrl} into alternating literal text and path parameter names so that
+         * requests can substitute values in a single pass. The first and last elements are always
+         * literal text, possibly empty. Returns null if there are no path parameters.
+         */
+        @Nullable
+        static String[] parseRelativeUrlTemplate(String relativeUrl) {
+            Matcher m = PARAM_URL_REGEX.matcher(relativeUrl);
+            List<String> segments = null;
+            int literalStart = 0;
+            while (m.find()) {
+                if (segments == null) {
+                    segments = new ArrayList<>();
+                }
+                segments.add(relativeUrl.substring(literalStart, m.start()));
+                segments.add(m.group(1));
+                literalStart = m.end();
+            }
+            if (segments == null) {
+                return null;
+            }
+            segments.add(relativeUrl.substring(literalStart));
+            return segments.toArray(new String[segments.size()]);
+        }
+
         private static Class<?> boxIfPrimitive(Class<?> type) {
             if (boolean.class == type) return Boolean.class;
             if (byte.class == type) return Byte.class;
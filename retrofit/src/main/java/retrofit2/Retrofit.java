@@ -22,9 +22,13 @@ import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nullable;
 
@@ -64,9 +68,10 @@ public final class Retrofit {
    * 主要用于缓存，比如缓存网络相关配置、方法、数据转换适配器、网络请求适配器等。
    * <p>
    * key：Http请求方法；
-   * value：ServiceMethod对象，其实就是网络请求接口中被Retrofit注解注释的方法，将其解析后生成的对象
+   * value：ServiceMethod对象，其实就是网络请求接口中被Retrofit注解注释的方法，将其解析后生成的对象。
+   * 正在解析中的方法对应的 value 是一个锁对象，见 {@link #loadServiceMethod}。
    */
-  private final Map<Method, ServiceMethod<?>> serviceMethodCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Method, Object> serviceMethodCache = new ConcurrentHashMap<>();
 
   /**
    * 它是请求网络的OkHttp的工厂，用于生产OkHttpClient的工厂
@@ -111,15 +116,29 @@ public final class Retrofit {
    */
   final boolean validateEagerly;
 
+  /**
+   * 提前解析接口方法时使用的执行器，为空则在调用 {@link #create} 的线程上逐个解析
+   */
+  final @Nullable
+  Executor validationExecutor;
+
+  /**
+   * 是否给每个 OkHttp 请求添加 {@link Invocation} 标签
+   */
+  final boolean invocationTags;
+
   Retrofit(okhttp3.Call.Factory callFactory, HttpUrl baseUrl,
            List<Converter.Factory> converterFactories, List<CallAdapter.Factory> callAdapterFactories,
-           @Nullable Executor callbackExecutor, boolean validateEagerly) {
+           @Nullable Executor callbackExecutor, boolean validateEagerly,
+           @Nullable Executor validationExecutor, boolean invocationTags) {
     this.callFactory = callFactory;
     this.baseUrl = baseUrl;
     this.converterFactories = converterFactories; // Copy+unmodifiable at call site.
     this.callAdapterFactories = callAdapterFactories; // Copy+unmodifiable at call site.
     this.callbackExecutor = callbackExecutor;
     this.validateEagerly = validateEagerly;
+    this.validationExecutor = validationExecutor;
+    this.invocationTags = invocationTags;
   }
 
   /**
@@ -187,6 +206,13 @@ public final class Retrofit {
               @Override
               public Object invoke(Object proxy, Method method, @Nullable Object[] args)
                       throws Throwable {
+                // Fast path: a method which has already been parsed is a service method. Skip the
+                // Object and default method checks below which can never match it.
+                Object cached = serviceMethodCache.get(method);
+                if (cached instanceof ServiceMethod<?>) {
+                  return ((ServiceMethod<?>) cached).invoke(args != null ? args : emptyArgs);
+                }
+
                 // If the method is a method from Object then defer to normal invocation.
                 if (method.getDeclaringClass() == Object.class) {
                   // 如果是Object的方法，那么直接调用，例如 equals，toString
@@ -205,29 +231,103 @@ public final class Retrofit {
 
   private void eagerlyValidateMethods(Class<?> service) {
     Platform platform = Platform.get();
-    for (Method method : service.getDeclaredMethods()) {
+    Executor executor = validationExecutor;
+    if (executor == null) {
+      for (Method method : service.getDeclaredMethods()) {
+        if (!platform.isDefaultMethod(method)) {
+          loadServiceMethod(method);
+        }
+      }
+      return;
+    }
+
+    List<FutureTask<ServiceMethod<?>>> tasks = new ArrayList<>();
+    for (final Method method : service.getDeclaredMethods()) {
       if (!platform.isDefaultMethod(method)) {
-        loadServiceMethod(method);
+        FutureTask<ServiceMethod<?>> task = new FutureTask<>(new Callable<ServiceMethod<?>>() {
+          @Override public ServiceMethod<?> call() {
+            return loadServiceMethod(method);
+          }
+        });
+        executor.execute(task);
+        tasks.add(task);
+      }
+    }
+
+    // Wait in declaration order so that the reported failure is the same one that serial
+    // validation would have thrown. Running a task which the executor has not started yet lets
+    // this thread help out, and avoids a deadlock if the executor is saturated or is this thread.
+    for (FutureTask<ServiceMethod<?>> task : tasks) {
+      task.run();
+      try {
+        task.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new RuntimeException(cause);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while validating " + service.getName(), e);
       }
     }
   }
 
   ServiceMethod<?> loadServiceMethod(Method method) {
-    // 从 serviceMethodCache中 获取，如果获取成功，则直接返回
-    ServiceMethod<?> result = serviceMethodCache.get(method);
-    if (result != null) return result;
-
-    synchronized (serviceMethodCache) {
-      result = serviceMethodCache.get(method);
-      if (result == null) {
-        // 通过 ServiceMethod 的 parseAnnotations方法，解析定义的方法的注解信息，并生成ServiceMethod对象
-        result = ServiceMethod.parseAnnotations(this, method);
-
-        // 将 生成的 ServiceMethod对象 保存在 serviceMethodCache中
-        serviceMethodCache.put(method, result);
+    while (true) {
+      // 从 serviceMethodCache中 获取，如果获取成功，则直接返回
+      Object lookup = serviceMethodCache.get(method);
+      if (lookup instanceof ServiceMethod<?>) {
+        return (ServiceMethod<?>) lookup;
+      }
+
+      if (lookup == null) {
+        // No entry yet. Publish a lock for this method so that other threads asking for the same
+        // method wait on it, while threads asking for other methods are not blocked at all. We
+        // must hold the lock before it becomes visible in the map. This is a ReentrantLock rather
+        // than a monitor so that virtual threads waiting on it don't pin their carrier thread.
+        ReentrantLock lock = new ReentrantLock();
+        lock.lock();
+        try {
+          lookup = serviceMethodCache.putIfAbsent(method, lock);
+          if (lookup == null) {
+            ServiceMethod<?> result;
+            try {
+              // 通过 ServiceMethod 的 parseAnnotations方法，解析定义的方法的注解信息，并生成ServiceMethod对象
+              result = ServiceMethod.parseAnnotations(this, method);
+            } catch (Throwable e) {
+              // Remove the lock so that waiting threads retry (and most likely fail the same way).
+              serviceMethodCache.remove(method);
+              throw e;
+            }
+            // 将 生成的 ServiceMethod对象 保存在 serviceMethodCache中
+            serviceMethodCache.put(method, result);
+            return result;
+          }
+        } finally {
+          lock.unlock();
+        }
+        if (lookup instanceof ServiceMethod<?>) {
+          return (ServiceMethod<?>) lookup;
+        }
+      }
+
+      // Another thread owns the lock and is parsing this method. It replaces the lock with the
+      // parsed result before releasing it, so wait for it and then read the map again.
+      ReentrantLock lock = (ReentrantLock) lookup;
+      lock.lock();
+      try {
+        Object result = serviceMethodCache.get(method);
+        if (!(result instanceof ServiceMethod<?>)) {
+          // The other thread failed to parse, and the entry is now absent or another thread's
+          // lock. Retry on this thread.
+          continue;
+        }
+        return (ServiceMethod<?>) result;
+      } finally {
+        lock.unlock();
       }
     }
-    return result;
   }
 
   /**
@@ -464,7 +564,11 @@ public final class Retrofit {
     private final List<CallAdapter.Factory> callAdapterFactories = new ArrayList<>();
     private @Nullable
     Executor callbackExecutor;
+    private boolean batchCallbacks;
     private boolean validateEagerly;
+    private @Nullable
+    Executor validationExecutor;
+    private boolean invocationTags = true;
 
     Builder(Platform platform) {
       this.platform = platform;
@@ -494,7 +598,14 @@ public final class Retrofit {
       }
 
       callbackExecutor = retrofit.callbackExecutor;
+      if (callbackExecutor instanceof ExecutorCallAdapterFactory.CallbackBatcher) {
+        // Unwrap so that build() does not batch the batches.
+        callbackExecutor = ((ExecutorCallAdapterFactory.CallbackBatcher) callbackExecutor).delegate;
+        batchCallbacks = true;
+      }
       validateEagerly = retrofit.validateEagerly;
+      validationExecutor = retrofit.validationExecutor;
+      invocationTags = retrofit.invocationTags;
     }
 
     /**
@@ -619,6 +730,36 @@ public final class Retrofit {
       return this;
     }
 
+    /**
+     * Invoke {@link Callback} methods on a new virtual thread for each callback, so that callbacks
+     * which block neither hold OkHttp's dispatcher threads nor queue behind each other. This
+     * replaces any {@linkplain #callbackExecutor(Executor) callback executor} set before it.
+     * <p>
+     * Virtual threads require Java 21 or newer; on older runtimes this throws
+     * {@link IllegalStateException}.
+     */
+    public Builder virtualThreadCallbackExecutor() {
+      this.callbackExecutor = platform.virtualThreadPerTaskExecutor();
+      return this;
+    }
+
+    /**
+     * Whether to gather {@link Callback} invocations from many calls and run them together in a
+     * single task on the {@linkplain #callbackExecutor(Executor) callback executor}, rather than
+     * posting one task per callback. This saves a queue hop and an allocation per call when many
+     * calls complete at once on a busy executor such as a UI or event loop thread. Callbacks still
+     * run in the order their calls completed. Disabled by default.
+     * <p>
+     * Batched callbacks run one at a time, even on an executor with many threads, so one slow
+     * callback delays every callback queued behind it.
+     * <p>
+     * Note: this has no effect on platforms without a default callback executor unless one is set.
+     */
+    public Builder batchCallbacks(boolean enabled) {
+      this.batchCallbacks = enabled;
+      return this;
+    }
+
     /**
      * Returns a modifiable list of call adapter factories.
      */
@@ -642,6 +783,29 @@ public final class Retrofit {
       return this;
     }
 
+    /**
+     * When calling {@link #create} on the resulting {@link Retrofit} instance, eagerly validate
+     * the configuration of all methods in the supplied interface by parsing them concurrently on
+     * {@code executor}. The thread calling {@link #create} also parses methods and waits for the
+     * rest to complete. If any method is invalid the exception reported is the same one which
+     * {@link #validateEagerly(boolean) serial validation} would throw.
+     */
+    public Builder validateEagerly(Executor executor) {
+      this.validationExecutor = checkNotNull(executor, "executor == null");
+      this.validateEagerly = true;
+      return this;
+    }
+
+    /**
+     * Whether to tag each OkHttp request with the {@link Invocation} which created it. Enabled by
+     * default. Disable this to save two allocations per call when nothing, such as an interceptor,
+     * reads the tag.
+     */
+    public Builder invocationTags(boolean enabled) {
+      this.invocationTags = enabled;
+      return this;
+    }
+
     /**
      * Create the {@link Retrofit} instance using the configured values.
      * <p>
@@ -669,6 +833,9 @@ public final class Retrofit {
       if (callbackExecutor == null) {
         callbackExecutor = platform.defaultCallbackExecutor();
       }
+      if (batchCallbacks && callbackExecutor != null) {
+        callbackExecutor = new ExecutorCallAdapterFactory.CallbackBatcher(callbackExecutor);
+      }
 
       // 4、创建 网络请求适配器列表，将Builder中设置的网络请求适配器和平台默认的请求适配器 加入其中
       // Make a defensive copy of the adapters and add the default Call adapter.
@@ -688,7 +855,8 @@ public final class Retrofit {
 
       // 6、将上面的变量传递给 Retrofit的构造函数，进行创建Retrofit对象
       return new Retrofit(callFactory, baseUrl, unmodifiableList(converterFactories),
-              unmodifiableList(callAdapterFactories), callbackExecutor, validateEagerly);
+              unmodifiableList(callAdapterFactories), callbackExecutor, validateEagerly,
+              validationExecutor, invocationTags);
     }
   }
 }
@@ -627,6 +627,117 @@ public final class CallTest {
     assertThat(failureRef.get()).hasMessage("Canceled");
   }
 
+  @Test public void requestCreatedOnceUnderContention() throws InterruptedException {
+    final AtomicInteger conversions = new AtomicInteger();
+    final CountDownLatch creating = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new ToStringConverterFactory() {
+          @Override
+          public Converter<?, RequestBody> requestBodyConverter(Type type,
+              Annotation[] parameterAnnotations, Annotation[] methodAnnotations,
+              Retrofit retrofit) {
+            return new Converter<String, RequestBody>() {
+              @Override public RequestBody convert(String value) throws IOException {
+                conversions.incrementAndGet();
+                creating.countDown();
+                try {
+                  assertTrue(release.await(10, SECONDS));
+                } catch (InterruptedException e) {
+                  throw new AssertionError(e);
+                }
+                return RequestBody.create(null, value);
+              }
+            };
+          }
+        })
+        .build();
+    Service service = retrofit.create(Service.class);
+    final Call<String> call = service.postString("Hi");
+
+    final AtomicReference<okhttp3.Request> firstRef = new AtomicReference<>();
+    final AtomicReference<okhttp3.Request> secondRef = new AtomicReference<>();
+    Thread first = new Thread() {
+      @Override public void run() {
+        firstRef.set(call.request());
+      }
+    };
+    Thread second = new Thread() {
+      @Override public void run() {
+        secondRef.set(call.request());
+      }
+    };
+    first.start();
+    assertTrue(creating.await(10, SECONDS));
+    second.start();
+    // Wait until the second thread is blocked behind the first thread's creation.
+    long deadline = System.nanoTime() + SECONDS.toNanos(10);
+    while (second.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(second.getState()).isEqualTo(Thread.State.WAITING);
+
+    release.countDown();
+    first.join(10000);
+    second.join(10000);
+    assertThat(conversions.get()).isEqualTo(1);
+    assertThat(firstRef.get()).isNotNull();
+    assertThat(secondRef.get()).isSameAs(firstRef.get());
+  }
+
+  @Test public void cancelDoesNotWaitForRequestCreation() throws InterruptedException {
+    final CountDownLatch creating = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new ToStringConverterFactory() {
+          @Override
+          public Converter<?, RequestBody> requestBodyConverter(Type type,
+              Annotation[] parameterAnnotations, Annotation[] methodAnnotations,
+              Retrofit retrofit) {
+            return new Converter<String, RequestBody>() {
+              @Override public RequestBody convert(String value) throws IOException {
+                creating.countDown();
+                try {
+                  assertTrue(release.await(10, SECONDS));
+                } catch (InterruptedException e) {
+                  throw new AssertionError(e);
+                }
+                return RequestBody.create(null, value);
+              }
+            };
+          }
+        })
+        .build();
+    Service service = retrofit.create(Service.class);
+    final Call<String> call = service.postString("Hi");
+
+    final AtomicReference<Throwable> failureRef = new AtomicReference<>();
+    final CountDownLatch done = new CountDownLatch(1);
+    new Thread() {
+      @Override public void run() {
+        try {
+          call.execute();
+        } catch (Throwable t) {
+          failureRef.set(t);
+        }
+        done.countDown();
+      }
+    }.start();
+    assertTrue(creating.await(10, SECONDS));
+
+    // The executing thread is still creating the request.
+    call.cancel();
+    assertThat(call.isCanceled()).isTrue();
+    assertThat(call.isExecuted()).isTrue();
+
+    release.countDown();
+    assertTrue(done.await(10, SECONDS));
+    assertThat(failureRef.get()).isInstanceOf(IOException.class).hasMessage("Canceled");
+    assertThat(server.getRequestCount()).isEqualTo(0);
+  }
+
   @Test public void cloningExecutedRequestDoesNotCopyState() throws IOException {
     Retrofit retrofit = new Retrofit.Builder()
         .baseUrl(server.url("/"))
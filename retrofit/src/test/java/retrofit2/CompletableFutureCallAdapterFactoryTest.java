@@ -20,6 +20,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.Before;
 import org.junit.Rule;
@@ -28,6 +29,9 @@ import retrofit2.helpers.ToStringConverterFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public final class CompletableFutureCallAdapterFactoryTest {
   private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
@@ -94,4 +98,36 @@ public final class CompletableFutureCallAdapterFactoryTest {
           "Response must be parameterized as Response<Foo> or Response<? extends Foo>");
     }
   }
+
+  @Test public void completingExceptionallyCancelsCall() {
+    Call<String> call = mock(Call.class);
+    CompletableFuture<String> future = adaptBody(call);
+    assertThat(future.completeExceptionally(new TimeoutException())).isTrue();
+    verify(call).cancel();
+  }
+
+  @Test public void completingCancelsCall() {
+    Call<String> call = mock(Call.class);
+    CompletableFuture<String> future = adaptBody(call);
+    assertThat(future.complete("Hi")).isTrue();
+    verify(call).cancel();
+  }
+
+  @Test public void responseDoesNotCancelCall() throws Exception {
+    Call<String> call = mock(Call.class);
+    CompletableFuture<String> future = adaptBody(call);
+    // The future is its own callback.
+    ((Callback<String>) future).onResponse(call, Response.success("Hi"));
+    assertThat(future.get()).isEqualTo("Hi");
+    verify(call, never()).cancel();
+  }
+
+  @SuppressWarnings("unchecked")
+  private CompletableFuture<String> adaptBody(Call<String> call) {
+    Type returnType = new TypeToken<CompletableFuture<String>>() {}.getType();
+    CallAdapter<String, CompletableFuture<String>> adapter =
+        (CallAdapter<String, CompletableFuture<String>>)
+            factory.get(returnType, NO_ANNOTATIONS, retrofit);
+    return adapter.adapt(call);
+  }
 }
@@ -16,8 +16,12 @@
 package retrofit2;
 
 import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.Before;
@@ -26,6 +30,7 @@ import org.junit.Test;
 import retrofit2.helpers.ToStringConverterFactory;
 import retrofit2.http.GET;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static okhttp3.mockwebserver.SocketPolicy.DISCONNECT_AFTER_REQUEST;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -111,4 +116,36 @@ public final class CompletableFutureTest {
       assertThat(e.getCause()).isInstanceOf(IOException.class);
     }
   }
+
+  @Test public void dependentStagesRunInCompletionTask() throws Exception {
+    final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new ToStringConverterFactory())
+        .addCallAdapterFactory(CompletableFutureCallAdapterFactory.create(new Executor() {
+          @Override public void execute(Runnable command) {
+            tasks.add(command);
+          }
+        }))
+        .build();
+    Service service = retrofit.create(Service.class);
+    server.enqueue(new MockResponse().setBody("Hi"));
+
+    final Thread testThread = Thread.currentThread();
+    CompletableFuture<String> future = service.body();
+    for (int i = 0; i < 10; i++) {
+      future = future.thenApply(new Function<String, String>() {
+        @Override public String apply(String value) {
+          assertThat(Thread.currentThread()).isSameAs(testThread);
+          return value + "!";
+        }
+      });
+    }
+
+    Runnable task = tasks.poll(10, SECONDS);
+    assertThat(task).isNotNull();
+    task.run();
+    assertThat(future.getNow(null)).isEqualTo("Hi!!!!!!!!!!");
+    assertThat(tasks).isEmpty();
+  }
 }
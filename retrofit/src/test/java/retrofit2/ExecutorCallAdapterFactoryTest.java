@@ -19,8 +19,11 @@ import com.google.common.reflect.TypeToken;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import okhttp3.Request;
 import org.junit.Test;
 
@@ -138,6 +141,111 @@ public final class ExecutorCallAdapterFactoryTest {
     verifyNoMoreInteractions(delegate);
   }
 
+  @Test public void batcherRunsQueuedCallbacksInOneTaskInOrder() {
+    final List<Runnable> tasks = new ArrayList<>();
+    ExecutorCallAdapterFactory.CallbackBatcher batcher =
+        new ExecutorCallAdapterFactory.CallbackBatcher(new Executor() {
+          @Override public void execute(Runnable runnable) {
+            tasks.add(runnable);
+          }
+        });
+    final List<String> ran = new ArrayList<>();
+    batcher.execute(record(ran, "one"));
+    batcher.execute(record(ran, "two"));
+    batcher.execute(record(ran, "three"));
+    assertThat(tasks).hasSize(1);
+    assertThat(ran).isEmpty();
+
+    tasks.remove(0).run();
+    assertThat(ran).containsExactly("one", "two", "three");
+
+    batcher.execute(record(ran, "four"));
+    assertThat(tasks).hasSize(1);
+    tasks.remove(0).run();
+    assertThat(ran).containsExactly("one", "two", "three", "four");
+  }
+
+  @Test public void batcherRunsCallbacksSubmittedWhileDraining() {
+    final List<Runnable> tasks = new ArrayList<>();
+    final ExecutorCallAdapterFactory.CallbackBatcher batcher =
+        new ExecutorCallAdapterFactory.CallbackBatcher(new Executor() {
+          @Override public void execute(Runnable runnable) {
+            tasks.add(runnable);
+          }
+        });
+    final List<String> ran = new ArrayList<>();
+    batcher.execute(new Runnable() {
+      @Override public void run() {
+        ran.add("one");
+        batcher.execute(record(ran, "two"));
+      }
+    });
+    tasks.remove(0).run();
+    assertThat(ran).containsExactly("one", "two");
+    assertThat(tasks).isEmpty();
+  }
+
+  @Test public void batcherResumesAfterCallbackThrows() {
+    final List<Runnable> tasks = new ArrayList<>();
+    ExecutorCallAdapterFactory.CallbackBatcher batcher =
+        new ExecutorCallAdapterFactory.CallbackBatcher(new Executor() {
+          @Override public void execute(Runnable runnable) {
+            tasks.add(runnable);
+          }
+        });
+    final List<String> ran = new ArrayList<>();
+    batcher.execute(new Runnable() {
+      @Override public void run() {
+        throw new IllegalStateException("Broken!");
+      }
+    });
+    batcher.execute(record(ran, "two"));
+    try {
+      tasks.remove(0).run();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Broken!");
+    }
+    assertThat(ran).isEmpty();
+    assertThat(tasks).hasSize(1);
+
+    tasks.remove(0).run();
+    assertThat(ran).containsExactly("two");
+  }
+
+  @Test public void batcherRejectionReachesCallerAndDoesNotStall() {
+    final AtomicBoolean reject = new AtomicBoolean(true);
+    final List<Runnable> tasks = new ArrayList<>();
+    ExecutorCallAdapterFactory.CallbackBatcher batcher =
+        new ExecutorCallAdapterFactory.CallbackBatcher(new Executor() {
+          @Override public void execute(Runnable runnable) {
+            if (reject.get()) throw new RejectedExecutionException("Rejected!");
+            tasks.add(runnable);
+          }
+        });
+    final List<String> ran = new ArrayList<>();
+    try {
+      batcher.execute(record(ran, "one"));
+      fail();
+    } catch (RejectedExecutionException e) {
+      assertThat(e).hasMessage("Rejected!");
+    }
+
+    reject.set(false);
+    batcher.execute(record(ran, "two"));
+    assertThat(tasks).hasSize(1);
+    tasks.remove(0).run();
+    assertThat(ran).containsExactly("two");
+  }
+
+  private static Runnable record(final List<String> ran, final String name) {
+    return new Runnable() {
+      @Override public void run() {
+        ran.add(name);
+      }
+    };
+  }
+
   static class EmptyCall implements Call<String> {
     @Override public void enqueue(Callback<String> callback) {
       throw new UnsupportedOperationException();
@@ -56,6 +56,24 @@ public final class InvocationTest {
     assertThat(invocation.arguments()).isEqualTo(Arrays.asList("one", "two", requestBody));
   }
 
+  @Test public void invocationTagsDisabled() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("http://example.com/")
+        .callFactory(new OkHttpClient())
+        .invocationTags(false)
+        .build();
+
+    Example example = retrofit.create(Example.class);
+    RequestBody requestBody = RequestBody.create(MediaType.get("text/plain"), "three");
+    Call<ResponseBody> call = example.postMethod("one", "two", requestBody);
+
+    assertThat(call.request().tag(Invocation.class)).isNull();
+    assertThat(retrofit.newBuilder().build().create(Example.class)
+        .postMethod("one", "two", requestBody)
+        .request()
+        .tag(Invocation.class)).isNull();
+  }
+
   @Test public void nullMethod() {
     try {
       Invocation.of(null, Arrays.asList("one", "two"));
@@ -960,6 +960,44 @@ public final class RequestFactoryTest {
     assertThat(buildRequest(Example.class, "..").url().encodedPath()).isEqualTo("/foo..bar/");
   }
 
+  @Test public void getWithMultiplePathParams() {
+    class Example {
+      @GET("/foo/{a}/bar/{b}/{a}-{c}") //
+      Call<ResponseBody> method(@Path("a") String a, @Path("b") String b, @Path("c") String c) {
+        return null;
+      }
+    }
+    Request request = buildRequest(Example.class, "one", "t w/o", "three");
+    assertThat(request.url().encodedPath()).isEqualTo("/foo/one/bar/t%20w%2Fo/one-three");
+  }
+
+  @Test public void getWithPathParamAndUnmatchedPlaceholder() {
+    class Example {
+      @GET("/foo/{a}/{b}/") //
+      Call<ResponseBody> method(@Path("a") String a) {
+        return null;
+      }
+    }
+    Request request = buildRequest(Example.class, "one");
+    assertThat(request.url().encodedPath()).isEqualTo("/foo/one/%7Bb%7D/");
+  }
+
+  @Test public void adjacentPathParametersAndPathTraversal() {
+    class Example {
+      @GET("/foo/{a}{b}/") //
+      Call<ResponseBody> method(@Path("a") String a, @Path("b") String b) {
+        return null;
+      }
+    }
+
+    assertMalformedRequest(Example.class, ".", ".");
+    assertMalformedRequest(Example.class, "", "..");
+
+    assertThat(buildRequest(Example.class, ".", "a").url().encodedPath()).isEqualTo("/foo/.a/");
+    assertThat(buildRequest(Example.class, "..", ".").url().encodedPath())
+        .isEqualTo("/foo/.../");
+  }
+
   @Test public void pathParamRequired() {
     class Example {
       @GET("/foo/bar/{ping}/") //
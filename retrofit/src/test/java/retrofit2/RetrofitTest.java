@@ -20,11 +20,14 @@ import java.lang.annotation.Annotation;
 import java.lang.annotation.Retention;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -52,6 +55,7 @@ import retrofit2.http.POST;
 import retrofit2.http.Query;
 
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static okhttp3.mockwebserver.SocketPolicy.DISCONNECT_AT_START;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -59,6 +63,7 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -260,6 +265,51 @@ public final class RetrofitTest {
     }
   }
 
+  @Test public void validateEagerlyWithExecutorFailsAtCreation() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .validateEagerly(executor)
+        .build();
+
+    try {
+      retrofit.create(VoidService.class);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageStartingWith(
+          "Service methods cannot return void.\n    for method VoidService.nope");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test public void validateEagerlyWithExecutorParsesOnExecutor() {
+    final AtomicInteger executed = new AtomicInteger();
+    final AtomicInteger parsed = new AtomicInteger();
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(new ToStringConverterFactory())
+        .addCallAdapterFactory(new CallAdapter.Factory() {
+          @Override public @Nullable CallAdapter<?, ?> get(Type returnType,
+              Annotation[] annotations, Retrofit retrofit) {
+            parsed.incrementAndGet();
+            return null;
+          }
+        })
+        .validateEagerly(new Executor() {
+          @Override public void execute(Runnable command) {
+            executed.incrementAndGet();
+            command.run();
+          }
+        })
+        .build();
+
+    retrofit.create(Annotated.class);
+    int methodCount = Annotated.class.getDeclaredMethods().length;
+    assertThat(executed.get()).isEqualTo(methodCount);
+    assertThat(parsed.get()).isEqualTo(methodCount);
+  }
+
   @Test public void callCallAdapterAddedByDefault() {
     Retrofit retrofit = new Retrofit.Builder()
         .baseUrl(server.url("/"))
@@ -1279,6 +1329,87 @@ public final class RetrofitTest {
     assertThat(retrofit.callbackExecutor()).isSameAs(executor);
   }
 
+  @Test public void virtualThreadCallbackExecutor() {
+    final Executor executor = mock(Executor.class);
+    Platform platform = new Platform() {
+      @Override Executor virtualThreadPerTaskExecutor() {
+        return executor;
+      }
+    };
+    Retrofit retrofit = new Retrofit.Builder(platform)
+        .baseUrl("http://example.com/")
+        .callbackExecutor(mock(Executor.class))
+        .virtualThreadCallbackExecutor()
+        .build();
+    assertThat(retrofit.callbackExecutor()).isSameAs(executor);
+  }
+
+  @Test public void virtualThreadCallbackExecutorUnsupported() {
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return; // Supported by this JVM.
+    } catch (NoSuchMethodException ignored) {
+    }
+    try {
+      new Retrofit.Builder().virtualThreadCallbackExecutor();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Virtual threads require Java 21 or newer.");
+    }
+  }
+
+  @Test public void batchCallbacksWrapsCallbackExecutor() {
+    Executor executor = mock(Executor.class);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl("http://example.com/")
+        .callbackExecutor(executor)
+        .batchCallbacks(true)
+        .build();
+    Executor batcher = retrofit.callbackExecutor();
+    assertThat(batcher).isInstanceOf(ExecutorCallAdapterFactory.CallbackBatcher.class);
+    assertThat(((ExecutorCallAdapterFactory.CallbackBatcher) batcher).delegate).isSameAs(executor);
+
+    // Rebuilding does not wrap the batcher in another.
+    Executor rebuilt = retrofit.newBuilder().build().callbackExecutor();
+    assertThat(rebuilt).isInstanceOf(ExecutorCallAdapterFactory.CallbackBatcher.class);
+    assertThat(((ExecutorCallAdapterFactory.CallbackBatcher) rebuilt).delegate).isSameAs(executor);
+
+    Executor unbatched = retrofit.newBuilder().batchCallbacks(false).build().callbackExecutor();
+    assertThat(unbatched).isSameAs(executor);
+  }
+
+  @Test public void batchCallbacksDeliversEachCallback() throws InterruptedException {
+    Executor executor = spy(new Executor() {
+      @Override public void execute(Runnable command) {
+        command.run();
+      }
+    });
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .callbackExecutor(executor)
+        .batchCallbacks(true)
+        .build();
+    CallMethod service = retrofit.create(CallMethod.class);
+
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+
+    final CountDownLatch latch = new CountDownLatch(2);
+    Callback<ResponseBody> callback = new Callback<ResponseBody>() {
+      @Override public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+        latch.countDown();
+      }
+
+      @Override public void onFailure(Call<ResponseBody> call, Throwable t) {
+        t.printStackTrace();
+      }
+    };
+    service.getResponseBody().enqueue(callback);
+    service.getResponseBody().enqueue(callback);
+    assertTrue(latch.await(10, SECONDS));
+    verify(executor, atLeastOnce()).execute(any(Runnable.class));
+  }
+
   @Test public void callbackExecutorUsedForSuccess() throws InterruptedException {
     Executor executor = spy(new Executor() {
       @Override public void execute(Runnable command) {
@@ -1341,6 +1472,150 @@ public final class RetrofitTest {
     verifyNoMoreInteractions(executor);
   }
 
+  @Test public void differentMethodsParseConcurrently() throws Exception {
+    final CountDownLatch bothParsing = new CountDownLatch(2);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addCallAdapterFactory(new CallAdapter.Factory() {
+          @Override public @Nullable CallAdapter<?, ?> get(Type returnType,
+              Annotation[] annotations, Retrofit retrofit) {
+            bothParsing.countDown();
+            try {
+              // Parsing one method must not block parsing of another.
+              if (!bothParsing.await(10, SECONDS)) throw new AssertionError("Parsing serialized");
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+            return null;
+          }
+        })
+        .build();
+    final CallMethod example = retrofit.create(CallMethod.class);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> first = executor.submit(new Runnable() {
+        @Override public void run() {
+          example.getResponseBody();
+        }
+      });
+      Future<?> second = executor.submit(new Runnable() {
+        @Override public void run() {
+          example.getVoid();
+        }
+      });
+      first.get(10, SECONDS);
+      second.get(10, SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test public void sameMethodParsedOnceUnderContention() throws Exception {
+    final AtomicInteger parseCount = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addCallAdapterFactory(new CallAdapter.Factory() {
+          @Override public @Nullable CallAdapter<?, ?> get(Type returnType,
+              Annotation[] annotations, Retrofit retrofit) {
+            parseCount.incrementAndGet();
+            return null;
+          }
+        })
+        .build();
+    final CallMethod example = retrofit.create(CallMethod.class);
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override public Void call() throws Exception {
+            start.await();
+            example.getResponseBody();
+            return null;
+          }
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(10, SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(parseCount.get()).isEqualTo(1);
+  }
+
+  @Test public void failedParseIsRetried() {
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .build();
+    VoidService service = retrofit.create(VoidService.class);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        service.nope();
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertThat(e).hasMessageStartingWith("Service methods cannot return void.");
+      }
+    }
+  }
+
+  @Test public void failedParseUnderContentionIsRetried() throws Exception {
+    final AtomicInteger parseCount = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    Retrofit retrofit = new Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addCallAdapterFactory(new CallAdapter.Factory() {
+          @Override public @Nullable CallAdapter<?, ?> get(Type returnType,
+              Annotation[] annotations, Retrofit retrofit) {
+            parseCount.incrementAndGet();
+            try {
+              // Give other threads time to wait on this parse, or to replace its lock.
+              Thread.sleep(5);
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+            throw new IllegalStateException("Broken!");
+          }
+        })
+        .build();
+    final CallMethod example = retrofit.create(CallMethod.class);
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override public Void call() throws Exception {
+            start.await();
+            for (int j = 0; j < 10; j++) {
+              try {
+                example.getResponseBody();
+                throw new AssertionError();
+              } catch (IllegalArgumentException e) {
+                assertThat(e).hasMessageStartingWith("Unable to create call adapter");
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(parseCount.get()).isEqualTo(threads * 10);
+  }
+
   /** Confirm that Retrofit encodes parameters when the call is executed, and not earlier. */
   @Test public void argumentCapture() throws Exception {
     AtomicInteger i = new AtomicInteger();